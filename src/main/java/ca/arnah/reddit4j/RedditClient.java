@@ -27,32 +27,48 @@
 
 package ca.arnah.reddit4j;
 
+import java.util.Collection;
 import java.util.List;
 import ca.arnah.reddit4j.config.RedditClientConfig;
 import ca.arnah.reddit4j.factories.RedditRequestFactory;
 import ca.arnah.reddit4j.objects.reddit.Kind;
+import ca.arnah.reddit4j.objects.reddit.Link;
 import ca.arnah.reddit4j.objects.references.SubredditReference;
 import ca.arnah.reddit4j.objects.response.listings.DuplicatesResponse;
 import ca.arnah.reddit4j.objects.response.listings.GetByIdResponse;
+import ca.arnah.reddit4j.requests.BatchedRequest;
 import ca.arnah.reddit4j.requests.Endpoint;
 import ca.arnah.reddit4j.requests.RedditRequest;
+import ca.arnah.reddit4j.requests.ThingResolver;
+import ca.arnah.reddit4j.requests.UserResolver;
 import ca.arnah.reddit4j.requests.paginators.SubredditPaginator;
 import lombok.extern.log4j.Log4j2;
 
 @Log4j2
 public class RedditClient{
 	
+	/**
+	 * The most fullnames Reddit accepts in a single <code>/by_id</code> request.
+	 */
+	public static final int MAX_IDS_PER_REQUEST = 100;
+	/**
+	 * Keeps the comma separated ids well below the URL length servers accept.
+	 */
+	public static final int MAX_IDS_LENGTH = 4000;
+	
 	private final RedditRequestFactory requestFactory;
+	private final UserResolver userResolver;
 	
 	public RedditClient(RedditClientConfig redditClientConfig){
 		this.requestFactory = redditClientConfig.getRedditRequestFactory();
+		this.userResolver = new UserResolver.Builder(requestFactory).build();
 		if(redditClientConfig.hasCredentials() && !(this instanceof RedditUserClient)){
 			log.warn("Not using a RedditUserClient when credentials were provided. Less functionality will be available.");
 		}
 	}
 	
 	public void shutdown(){
-		requestFactory.getRateLimiter().shutdown();
+		requestFactory.shutdown();
 	}
 	
 	public RedditRequestFactory getRequestFactory(){
@@ -93,11 +109,47 @@ public class RedditClient{
 	 * Can convert a <code>link id</code> to <code>fullname</code> by using {@link Kind#toFullName(String)}
 	 *
 	 * @param linkFullNames Links by there fullname <code>t3_</code>
+	 * @deprecated Sends every fullname in a single request, which Reddit rejects past {@link #MAX_IDS_PER_REQUEST} fullnames. Use
+	 * {@link #getById(Collection)} instead, which splits them into as many requests as needed.
 	 */
+	@Deprecated
 	public RedditRequest<GetByIdResponse> getById(String... linkFullNames){
+		return getByIdBatch(List.of(linkFullNames));
+	}
+	
+	/**
+	 * Get links by fullname, any amount of them.<br>
+	 * The fullnames are split into as many <code>/by_id</code> requests as needed, which run concurrently.
+	 *
+	 * @param linkFullNames Links by there fullname <code>t3_</code>
+	 */
+	public BatchedRequest<Link> getById(Collection<String> linkFullNames){
+		List<RedditRequest<GetByIdResponse>> requests = BatchedRequest.partition(linkFullNames, MAX_IDS_PER_REQUEST, MAX_IDS_LENGTH).stream()
+			.map(this::getByIdBatch)
+			.toList();
+		return new BatchedRequest<>(requests, GetByIdResponse::getLinks);
+	}
+	
+	private RedditRequest<GetByIdResponse> getByIdBatch(List<String> linkFullNames){
 		return getRequestFactory().request(GetByIdResponse.class).endpoint(Endpoint.GET_BY_ID, List.of(String.join(",", linkFullNames))).build();
 	}
 	
+	/**
+	 * Creates a resolver that batches lookups of links, comments and subreddits by fullname into <code>/api/info</code> requests.<br>
+	 * Each resolver remembers things for 10 minutes and missing things for 1 minute. Use {@link ThingResolver.Builder} to change the batching
+	 * window or how long and how many results are remembered.
+	 */
+	public ThingResolver thingResolver(){
+		return new ThingResolver.Builder(getRequestFactory()).build();
+	}
+	
+	/**
+	 * @return The resolver of accounts by fullname <code>t2_</code> shared by this client, which remembers what it resolved for a while.
+	 */
+	public UserResolver getUserResolver(){
+		return userResolver;
+	}
+	
 	/**
 	 *
 	 * @param link Link by the id <code>jptqj9</code>
@@ -27,35 +27,79 @@
 
 package ca.arnah.reddit4j.config;
 
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.time.Duration;
+import java.time.LocalDateTime;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.concurrent.locks.ReentrantLock;
 import java.util.function.Supplier;
 import ca.arnah.reddit4j.factories.RedditRequestFactory;
+import ca.arnah.reddit4j.factories.RequestFactorySettings;
 import ca.arnah.reddit4j.objects.app.script.Credentials;
 import ca.arnah.reddit4j.objects.app.script.PersonalUseScript;
 import ca.arnah.reddit4j.objects.app.script.UserAgent;
 import ca.arnah.reddit4j.objects.reddit.AccessToken;
+import ca.arnah.reddit4j.requests.RateLimiter;
 import ca.arnah.reddit4j.requests.RedditRequest;
 import ca.arnah.reddit4j.requests.RequestPreprocessor;
 import lombok.extern.log4j.Log4j2;
 
+/**
+ * Configuration for a <code>script</code> type application.
+ * <p>
+ * The access token is refreshed in the background shortly before {@link AccessToken#getExpiresAt()}, outside of the {@link RateLimiter} queue.
+ * Requests only read the most recently published token, they only wait for a refresh when no valid token exists, such as for the very
+ * first request.
+ */
 @Log4j2
 public class ScriptClientConfig implements RedditClientConfig{
 	
+	/**
+	 * How long before the access token expires to refresh it.
+	 */
+	private static final Duration REFRESH_MARGIN = Duration.ofMinutes(2);
+	private static final Duration REFRESH_RETRY_DELAY = Duration.ofSeconds(10);
+	
 	private final RequestPreprocessor userAgentPreprocessor;
 	
 	private final Supplier<RedditRequest<AccessToken>> getAccessToken;
 	
-	private AccessToken accessToken;
+	private final AtomicReference<AccessToken> accessToken = new AtomicReference<>();
 	
 	private final boolean hasCredentials;
+	/**
+	 * Guards {@link #refreshing}.
+	 */
 	private final ReentrantLock accessTokenLock = new ReentrantLock(false);
+	private CompletableFuture<AccessToken> refreshing;
+	private final RequestFactorySettings requestFactorySettings;
+	/**
+	 * Who the requests are authenticated as, see {@link RedditRequestFactory#getIdentity()}.
+	 */
+	private final String identity;
 	private final RedditRequestFactory requestFactory;
+	private final ScheduledExecutorService refresher;
 	
 	public ScriptClientConfig(PersonalUseScript personalUseScript, UserAgent userAgent){
+		this(personalUseScript, userAgent, new RequestFactorySettings.Builder().build());
+	}
+	
+	public ScriptClientConfig(PersonalUseScript personalUseScript, UserAgent userAgent, RequestFactorySettings requestFactorySettings){
 		this.userAgentPreprocessor = request->request.header(USER_AGENT, userAgent.toString());
 		this.hasCredentials = false;
+		this.requestFactorySettings = requestFactorySettings;
+		this.identity = personalUseScript.getClientId();
 		this.requestFactory = getRedditRequestFactory();
+		this.refresher = createRefresher();
 		// Access token appears to have separate ratelimit?
 		// But since we have no ratelimit data from reddit it doesn't delay the initial access token request.
 		this.getAccessToken = ()->{
@@ -66,9 +110,16 @@ public class ScriptClientConfig implements RedditClientConfig{
 	}
 	
 	public ScriptClientConfig(PersonalUseScript personalUseScript, UserAgent userAgent, Credentials credentials){
+		this(personalUseScript, userAgent, credentials, new RequestFactorySettings.Builder().build());
+	}
+	
+	public ScriptClientConfig(PersonalUseScript personalUseScript, UserAgent userAgent, Credentials credentials, RequestFactorySettings requestFactorySettings){
 		this.userAgentPreprocessor = request->request.header(USER_AGENT, userAgent.toString());
 		this.hasCredentials = true;
+		this.requestFactorySettings = requestFactorySettings;
+		this.identity = personalUseScript.getClientId() + "/" + credentials.getUsername();
 		this.requestFactory = getRedditRequestFactory();
+		this.refresher = createRefresher();
 		this.getAccessToken = ()->{
 			var accessTokenBuilder = new RedditRequest.Builder<>(requestFactory, "https://www.reddit.com/api/v1/access_token", request->this.userAgentPreprocessor.preprocess(request)
 				.header(AUTHORIZATION, personalUseScript.toString()), AccessToken.class, null);
@@ -77,29 +128,114 @@ public class ScriptClientConfig implements RedditClientConfig{
 		};
 	}
 	
+	private ScheduledExecutorService createRefresher(){
+		ThreadFactory threadFactory = requestFactory.getRateLimiter().getExecutionMode().threadFactory("TokenRefresher");
+		ScheduledExecutorService refresher = Executors.newSingleThreadScheduledExecutor(r->{
+			Thread thread = threadFactory.newThread(r);
+			thread.setDaemon(true);
+			return thread;
+		});
+		requestFactory.onShutdown(refresher::shutdownNow);
+		return refresher;
+	}
+	
 	@Override
-	public boolean validate(){
-		if(this.accessToken == null || this.accessToken.isExpired()){
-			log.trace("Access token is missing or expired, requesting new access token.");
-			this.accessToken = this.getAccessToken.get().execute();
-		}
+	public boolean validate() throws IOException{
+		getValidAccessToken();
 		return true;
 	}
 	
+	/**
+	 * @return The current access token, only blocking when no valid token has been published yet.
+	 */
+	private AccessToken getValidAccessToken() throws IOException{
+		AccessToken token = accessToken.get();
+		if(token != null && !token.isExpired()){
+			return token;
+		}
+		log.trace("Access token is missing or expired, waiting for a new access token.");
+		try{
+			return refresh().get();
+		}catch(InterruptedException ex){
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while waiting for an access token");
+		}catch(ExecutionException ex){
+			throw new IOException("Failed to request an access token", ex.getCause());
+		}
+	}
+	
+	/**
+	 * Starts refreshing the access token, unless a refresh is already running in which case that one is returned.
+	 */
+	private CompletableFuture<AccessToken> refresh(){
+		accessTokenLock.lock();
+		try{
+			if(refreshing != null){
+				return refreshing;
+			}
+			CompletableFuture<AccessToken> future = new CompletableFuture<>();
+			refreshing = future;
+			try{
+				refresher.execute(()->requestAccessToken(future));
+			}catch(RejectedExecutionException ex){
+				// Shut down, nothing will ever complete this refresh.
+				refreshing = null;
+				future.completeExceptionally(ex);
+				throw ex;
+			}
+			return future;
+		}finally{
+			accessTokenLock.unlock();
+		}
+	}
+	
+	/**
+	 * Requests a new access token on the refresher thread and completes the given future with it.
+	 */
+	private void requestAccessToken(CompletableFuture<AccessToken> future){
+		AccessToken token = null;
+		Throwable error = null;
+		try{
+			// The token is sent directly on the transport, it must never wait in the queue behind the requests that need it.
+			token = getAccessToken.get().executeDirect();
+			accessToken.set(token);
+		}catch(Throwable ex){
+			error = ex;
+		}
+		accessTokenLock.lock();
+		try{
+			refreshing = null;
+		}finally{
+			accessTokenLock.unlock();
+		}
+		if(error == null){
+			future.complete(token);
+			scheduleRefresh(token);
+		}else{
+			log.warn("Failed to refresh the access token", error);
+			future.completeExceptionally(error);
+			AccessToken current = accessToken.get();
+			if(current != null && !current.isExpired()){
+				refresher.schedule(this::refresh, REFRESH_RETRY_DELAY.toMillis(), TimeUnit.MILLISECONDS);
+			}
+		}
+	}
+	
+	private void scheduleRefresh(AccessToken token){
+		long delay = Math.max(0, Duration.between(LocalDateTime.now(), token.getExpiresAt()).minus(REFRESH_MARGIN).toMillis());
+		log.trace("Refreshing the access token in {}ms", delay);
+		refresher.schedule(this::refresh, delay, TimeUnit.MILLISECONDS);
+	}
+	
 	@Override
 	public RedditRequestFactory getRedditRequestFactory(){
 		if(requestFactory != null){
 			return requestFactory;
 		}
-		return new RedditRequestFactory("https://oauth.reddit.com", request->{
-			accessTokenLock.lock();
-			try{
-				validate();
-			}finally{
-				accessTokenLock.unlock();
-			}
-			return this.userAgentPreprocessor.preprocess(request).header(AUTHORIZATION, "bearer " + this.accessToken.getAccessToken());
-		});
+		return new RedditRequestFactory("https://oauth.reddit.com", identity, request->{
+			AccessToken token = getValidAccessToken();
+			return this.userAgentPreprocessor.preprocess(request).header(AUTHORIZATION, "bearer " + token.getAccessToken());
+		}, requestFactorySettings);
 	}
 	
 	@Override
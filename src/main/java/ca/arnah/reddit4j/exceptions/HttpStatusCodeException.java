@@ -28,6 +28,8 @@
 package ca.arnah.reddit4j.exceptions;
 
 import java.io.IOException;
+import java.net.http.HttpHeaders;
+import java.util.Map;
 import lombok.Getter;
 
 @Getter
@@ -35,8 +37,15 @@ public class HttpStatusCodeException extends IOException{
 	
 	private final int statusCode;
 	
+	private final HttpHeaders headers;
+	
 	public HttpStatusCodeException(String message, int statusCode){
+		this(message, statusCode, HttpHeaders.of(Map.of(), (name, value)->true));
+	}
+	
+	public HttpStatusCodeException(String message, int statusCode, HttpHeaders headers){
 		super(message);
 		this.statusCode = statusCode;
+		this.headers = headers;
 	}
 }
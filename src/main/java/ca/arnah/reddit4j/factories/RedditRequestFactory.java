@@ -28,26 +28,74 @@
 package ca.arnah.reddit4j.factories;
 
 import java.lang.reflect.Type;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import ca.arnah.reddit4j.requests.AdaptiveConcurrencyLimit;
 import ca.arnah.reddit4j.requests.RateLimiter;
 import ca.arnah.reddit4j.requests.RedditRequest;
+import ca.arnah.reddit4j.requests.RequestCoalescer;
 import ca.arnah.reddit4j.requests.RequestPreprocessor;
+import ca.arnah.reddit4j.requests.RequestStatistics;
+import ca.arnah.reddit4j.requests.RetryPolicy;
+import ca.arnah.reddit4j.requests.cache.ContentHashCache;
+import ca.arnah.reddit4j.requests.cache.ResponseCache;
+import ca.arnah.reddit4j.requests.transport.HttpClientTransport;
+import ca.arnah.reddit4j.requests.transport.RedditTransport;
 
 public class RedditRequestFactory{
 	
 	private final String baseUrl;
+	private final String identity;
 	private final RequestPreprocessor requestPreprocessor;
 	private final RateLimiter rateLimiter;
+	private final RequestStatistics statistics;
+	private final RedditTransport transport;
+	private final RetryPolicy retryPolicy;
+	private final ResponseCache responseCache;
+	private final RequestCoalescer coalescer;
+	private final ContentHashCache contentHashCache;
+	private final List<Runnable> shutdownHooks = new CopyOnWriteArrayList<>();
 	
 	public RedditRequestFactory(String baseUrl, RequestPreprocessor requestPreprocessor){
+		this(baseUrl, requestPreprocessor, new RequestFactorySettings.Builder().build());
+	}
+	
+	/**
+	 * @throws IllegalArgumentException If the settings have a {@link ResponseCache}, which needs an identity to keep accounts apart.
+	 */
+	public RedditRequestFactory(String baseUrl, RequestPreprocessor requestPreprocessor, RequestFactorySettings settings){
+		this(baseUrl, null, requestPreprocessor, settings);
+	}
+	
+	/**
+	 * @param identity Who the requests are authenticated as, keeps cached responses of different accounts apart. Required with a
+	 * {@link ResponseCache}, as it may be shared between factories.
+	 * @throws IllegalArgumentException If the settings have a {@link ResponseCache} but there is no identity.
+	 */
+	public RedditRequestFactory(String baseUrl, String identity, RequestPreprocessor requestPreprocessor, RequestFactorySettings settings){
+		if(settings.getResponseCache() != null && identity == null){
+			throw new IllegalArgumentException("A response cache requires an identity, otherwise accounts could be served each other's responses");
+		}
 		this.baseUrl = baseUrl;
+		this.identity = identity;
 		this.requestPreprocessor = requestPreprocessor;
-		this.rateLimiter = new RateLimiter();
+		this.rateLimiter = new RateLimiter(settings.getExecutionMode(), settings.getConcurrencyLimit() != null ? settings.getConcurrencyLimit() : new AdaptiveConcurrencyLimit());
+		this.statistics = new RequestStatistics();
+		this.transport = settings.getTransport() != null ? settings.getTransport() : new HttpClientTransport();
+		this.retryPolicy = settings.getRetryPolicy();
+		this.responseCache = settings.getResponseCache();
+		this.coalescer = settings.isCoalesceRequests() ? new RequestCoalescer(statistics) : null;
+		this.contentHashCache = settings.getContentHashCache();
 	}
 	
 	public <R> RedditRequest.Builder<R> request(Class<R> responseClass){
 		return new RedditRequest.Builder<>(this, baseUrl, requestPreprocessor, responseClass, null);
 	}
 	
+	public <R> RedditRequest.Builder<R> request(Type type){
+		return new RedditRequest.Builder<>(this, baseUrl, requestPreprocessor, null, type);
+	}
+	
 	public <R> RedditRequest.ListingBuilder<R> listing(Class<R> responseClass){
 		return new RedditRequest.ListingBuilder<>(this, baseUrl, requestPreprocessor, responseClass, null);
 	}
@@ -59,4 +107,61 @@ public class RedditRequestFactory{
 	public RateLimiter getRateLimiter(){
 		return rateLimiter;
 	}
+	
+	public RequestStatistics getStatistics(){
+		return statistics;
+	}
+	
+	public RedditTransport getTransport(){
+		return transport;
+	}
+	
+	public RetryPolicy getRetryPolicy(){
+		return retryPolicy;
+	}
+	
+	/**
+	 * @return The cache of decoded responses, <code>null</code> if caching is disabled.
+	 */
+	public ResponseCache getResponseCache(){
+		return responseCache;
+	}
+	
+	/**
+	 * @return The coalescer of identical pending requests, <code>null</code> if coalescing is disabled.
+	 */
+	public RequestCoalescer getCoalescer(){
+		return coalescer;
+	}
+	
+	/**
+	 * @return The hashes of previous response bodies, <code>null</code> if unchanged bodies are decoded as usual.
+	 */
+	public ContentHashCache getContentHashCache(){
+		return contentHashCache;
+	}
+	
+	public String getIdentity(){
+		return identity;
+	}
+	
+	/**
+	 * Runs the given task when this factory is shutdown, used to stop anything tied to the lifetime of the factory.
+	 */
+	public void onShutdown(Runnable hook){
+		shutdownHooks.add(hook);
+	}
+	
+	/**
+	 * Removes a task added with {@link #onShutdown(Runnable)}, for things that are stopped before the factory is.
+	 */
+	public void removeShutdownHook(Runnable hook){
+		shutdownHooks.remove(hook);
+	}
+	
+	public void shutdown(){
+		shutdownHooks.forEach(Runnable::run);
+		rateLimiter.shutdown();
+		transport.close();
+	}
 }
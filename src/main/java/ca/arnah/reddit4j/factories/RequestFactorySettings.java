@@ -0,0 +1,154 @@
+/*
+ * Copyright (c) 2023, Arnah <github@arnah.ca>
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 3. Neither the name of the copyright holder nor the names of its
+ *    contributors may be used to endorse or promote products derived from
+ *    this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package ca.arnah.reddit4j.factories;
+
+import ca.arnah.reddit4j.requests.AdaptiveConcurrencyLimit;
+import ca.arnah.reddit4j.requests.ExecutionMode;
+import ca.arnah.reddit4j.requests.RetryPolicy;
+import ca.arnah.reddit4j.requests.cache.ContentHashCache;
+import ca.arnah.reddit4j.requests.cache.ResponseCache;
+import ca.arnah.reddit4j.requests.transport.HttpClientTransport;
+import ca.arnah.reddit4j.requests.transport.RedditTransport;
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * Settings used when a {@link RedditRequestFactory} is created.
+ */
+@Getter
+@ToString
+public class RequestFactorySettings{
+	
+	/**
+	 * The transport to use, <code>null</code> if each factory should create its own {@link HttpClientTransport}.
+	 */
+	private final RedditTransport transport;
+	
+	/**
+	 * The limit of requests in flight at once, <code>null</code> if each factory should create its own with the default settings.
+	 */
+	private final AdaptiveConcurrencyLimit concurrencyLimit;
+	
+	/**
+	 * The kind of threads requests are executed and decoded on.
+	 */
+	private final ExecutionMode executionMode;
+	
+	/**
+	 * Decides which failed requests are retried, and when.
+	 */
+	private final RetryPolicy retryPolicy;
+	
+	/**
+	 * Caches decoded <code>GET</code> responses when set, disabled by default.
+	 */
+	private final ResponseCache responseCache;
+	
+	/**
+	 * Whether identical pending <code>GET</code> requests share a single exchange.
+	 */
+	private final boolean coalesceRequests;
+	
+	/**
+	 * Skips decoding response bodies identical to the previous one for the same request when set, disabled by default.
+	 */
+	private final ContentHashCache contentHashCache;
+	
+	protected RequestFactorySettings(Builder builder){
+		this.transport = builder.transport;
+		this.concurrencyLimit = builder.concurrencyLimit;
+		this.executionMode = builder.executionMode;
+		this.retryPolicy = builder.retryPolicy;
+		this.responseCache = builder.responseCache;
+		this.coalesceRequests = builder.coalesceRequests;
+		this.contentHashCache = builder.contentHashCache;
+	}
+	
+	public static class Builder{
+		
+		private RedditTransport transport;
+		private AdaptiveConcurrencyLimit concurrencyLimit;
+		private ExecutionMode executionMode = ExecutionMode.PLATFORM;
+		private RetryPolicy retryPolicy = RetryPolicy.DEFAULT;
+		private ResponseCache responseCache;
+		private boolean coalesceRequests;
+		private ContentHashCache contentHashCache;
+		
+		public Builder transport(RedditTransport transport){
+			this.transport = transport;
+			return this;
+		}
+		
+		public Builder concurrencyLimit(AdaptiveConcurrencyLimit concurrencyLimit){
+			this.concurrencyLimit = concurrencyLimit;
+			return this;
+		}
+		
+		/**
+		 * {@link ExecutionMode#VIRTUAL} requires JDK 21, on older versions {@link ExecutionMode#PLATFORM} is used instead.
+		 */
+		public Builder executionMode(ExecutionMode executionMode){
+			this.executionMode = executionMode;
+			return this;
+		}
+		
+		/**
+		 * Defaults to {@link RetryPolicy#DEFAULT}, use {@link RetryPolicy#NONE} to disable retrying.
+		 */
+		public Builder retryPolicy(RetryPolicy retryPolicy){
+			this.retryPolicy = retryPolicy;
+			return this;
+		}
+		
+		/**
+		 * Enables caching of decoded responses, the same cache can be shared between factories.
+		 */
+		public Builder responseCache(ResponseCache responseCache){
+			this.responseCache = responseCache;
+			return this;
+		}
+		
+		/**
+		 * Lets identical <code>GET</code> requests pending at the same time share one exchange, defaults to <code>false</code>. Every caller
+		 * sharing an exchange gets the same decoded object, so it must not be modified.
+		 */
+		public Builder coalesceRequests(boolean coalesceRequests){
+			this.coalesceRequests = coalesceRequests;
+			return this;
+		}
+		
+		public Builder contentHashCache(ContentHashCache contentHashCache){
+			this.contentHashCache = contentHashCache;
+			return this;
+		}
+		
+		public RequestFactorySettings build(){
+			return new RequestFactorySettings(this);
+		}
+	}
+}
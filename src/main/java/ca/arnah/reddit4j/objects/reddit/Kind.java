@@ -36,6 +36,7 @@ public enum Kind{
 	@SerializedName("KarmaList") KARMA_LIST("KarmaList"),
 	@SerializedName("TrophyList") TROPHY_LIST("TrophyList"),
 	@SerializedName("t1") COMMENT("t1"),
+	@SerializedName("t2") ACCOUNT("t2"),
 	@SerializedName("t3") LINK("t3"),
 	@SerializedName("t5") SUBREDDIT("t5"),
 	@SerializedName("t6") TROPHY("t6"),
@@ -0,0 +1,86 @@
+/*
+ * Copyright (c) 2023, Arnah <github@arnah.ca>
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 3. Neither the name of the copyright holder nor the names of its
+ *    contributors may be used to endorse or promote products derived from
+ *    this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package ca.arnah.reddit4j.objects.reddit;
+
+import com.google.gson.annotations.SerializedName;
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * The compact account data returned by <code>/api/user_data_by_account_ids</code>.
+ */
+@Getter
+@ToString
+public class PartialUser{
+	
+	/**
+	 * The fullname <code>t2_</code> of the account, not part of the data itself but the key it was returned under.
+	 */
+	private transient String fullName;
+	
+	private String name;
+	
+	@SerializedName("created_utc")
+	private long createdUtc;
+	
+	@SerializedName("link_karma")
+	private int linkKarma;
+	
+	@SerializedName("comment_karma")
+	private int commentKarma;
+	
+	@SerializedName("profile_img")
+	private String profileImg;
+	
+	@SerializedName("profile_color")
+	private String profileColor;
+	
+	@SerializedName("profile_over_18")
+	private boolean profileOver18;
+	
+	public PartialUser(){
+	}
+	
+	private PartialUser(PartialUser user, String fullName){
+		this.fullName = fullName;
+		this.name = user.name;
+		this.createdUtc = user.createdUtc;
+		this.linkKarma = user.linkKarma;
+		this.commentKarma = user.commentKarma;
+		this.profileImg = user.profileImg;
+		this.profileColor = user.profileColor;
+		this.profileOver18 = user.profileOver18;
+	}
+	
+	/**
+	 * @return A copy of this account with the given fullname, this account is left untouched.
+	 */
+	public PartialUser withFullName(String fullName){
+		return new PartialUser(this, fullName);
+	}
+}
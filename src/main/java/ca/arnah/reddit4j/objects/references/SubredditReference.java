@@ -41,6 +41,7 @@ import ca.arnah.reddit4j.objects.response.link.SubmissionResponse;
 import ca.arnah.reddit4j.objects.response.listings.SubredditCommentResponse;
 import ca.arnah.reddit4j.requests.Endpoint;
 import ca.arnah.reddit4j.requests.RedditRequest;
+import ca.arnah.reddit4j.requests.paginators.SubmissionStream;
 import ca.arnah.reddit4j.requests.paginators.SubredditAboutPaginator;
 import ca.arnah.reddit4j.requests.paginators.SubredditPaginator;
 
@@ -66,6 +67,13 @@ public class SubredditReference{
 		return new SubredditPaginator.Builder(client, getSubreddit());
 	}
 	
+	/**
+	 * Polls the newest posts of the {@link Subreddit} and publishes the ones not seen before.
+	 */
+	public SubmissionStream.Builder submissions(){
+		return new SubmissionStream.Builder(client, getSubreddit());
+	}
+	
 	/**
 	 * @see #commentsAsync()
 	 */
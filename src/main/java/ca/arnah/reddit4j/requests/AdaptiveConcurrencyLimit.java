@@ -0,0 +1,231 @@
+/*
+ * Copyright (c) 2023, Arnah <github@arnah.ca>
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 3. Neither the name of the copyright holder nor the names of its
+ *    contributors may be used to endorse or promote products derived from
+ *    this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package ca.arnah.reddit4j.requests;
+
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import lombok.extern.log4j.Log4j2;
+
+/**
+ * Limits how many requests the {@link RateLimiter} keeps in flight, adjusting the limit from observed latency and errors (AIMD).
+ * <p>
+ * Every successful request grows the limit by roughly one per limit worth of requests while the recent latency of its endpoint stays close
+ * to the usual latency of that endpoint. When the recent latency gets slower than {@link #getLatencyTolerance()} times the usual one, or a
+ * request failed with a 429, a 5xx or an I/O error, the limit shrinks by the backoff ratio. This stops us from piling more requests onto
+ * Reddit while it is slowing down.
+ * <p>
+ * Both latencies are moving averages, so a single slow response does not lower the limit. The limit is lowered at most once per round
+ * trip: a request sent before the last decrease already saw the congestion that caused it and is ignored, so a burst of 429s for the
+ * requests that were in flight together only lowers it once.
+ */
+@Log4j2
+public class AdaptiveConcurrencyLimit{
+	
+	public static final int DEFAULT_INITIAL_LIMIT = 8;
+	public static final int DEFAULT_MIN_LIMIT = 1;
+	public static final int DEFAULT_MAX_LIMIT = 64;
+	private static final int HISTORY_SIZE = 256;
+	/**
+	 * How many responses of an endpoint are averaged before its latency is judged at all.
+	 */
+	private static final int WARMUP_SAMPLES = 10;
+	/**
+	 * The weight of a new response in the usual latency, small so a slowdown only moves it gradually.
+	 */
+	private static final double BASELINE_SMOOTHING = 0.01;
+	/**
+	 * The weight of a new response in the recent latency.
+	 */
+	private static final double RECENT_SMOOTHING = 0.2;
+	
+	private final int minLimit, maxLimit;
+	private final double backoffRatio, latencyTolerance;
+	private final Deque<LimitChange> history = new ArrayDeque<>();
+	/**
+	 * Keyed by endpoint, <code>null</code> for requests built from a plain path.
+	 */
+	private final Map<Endpoint, Latency> latencies = new HashMap<>();
+	
+	private double limit;
+	private int inFlight;
+	/**
+	 * When the limit was last lowered, in {@link System#nanoTime()}.
+	 */
+	private long decreasedAt = Long.MIN_VALUE;
+	
+	public AdaptiveConcurrencyLimit(){
+		this(DEFAULT_INITIAL_LIMIT, DEFAULT_MIN_LIMIT, DEFAULT_MAX_LIMIT, 0.5, 2);
+	}
+	
+	/**
+	 * @param backoffRatio What the limit is multiplied by when a request is dropped or too slow.
+	 * @param latencyTolerance How many times slower than the usual latency of an endpoint its recent latency may be before the limit is lowered.
+	 */
+	public AdaptiveConcurrencyLimit(int initialLimit, int minLimit, int maxLimit, double backoffRatio, double latencyTolerance){
+		if(minLimit < 1 || maxLimit < minLimit || initialLimit < minLimit || initialLimit > maxLimit){
+			throw new IllegalArgumentException("Expected 1 <= minLimit <= initialLimit <= maxLimit");
+		}
+		if(backoffRatio <= 0 || backoffRatio >= 1){
+			throw new IllegalArgumentException("Backoff ratio must be between 0 and 1");
+		}
+		this.limit = initialLimit;
+		this.minLimit = minLimit;
+		this.maxLimit = maxLimit;
+		this.backoffRatio = backoffRatio;
+		this.latencyTolerance = latencyTolerance;
+		history.add(new LimitChange(Instant.now(), initialLimit));
+	}
+	
+	/**
+	 * Blocks until another request may be put in flight.
+	 */
+	public synchronized void acquire() throws InterruptedException{
+		while(inFlight >= getLimit()){
+			wait();
+		}
+		++inFlight;
+	}
+	
+	/**
+	 * Releases a slot taken by {@link #acquire()} without a request having been sent.
+	 */
+	public synchronized void release(){
+		--inFlight;
+		notifyAll();
+	}
+	
+	/**
+	 * Releases a slot after a request received a response in time.
+	 *
+	 * @param endpoint The endpoint the request was built from, <code>null</code> if it was built from a plain path.
+	 */
+	public synchronized void onSuccess(Endpoint endpoint, long latencyNanos){
+		Latency latency = latencies.computeIfAbsent(endpoint, e->new Latency());
+		latency.add(latencyNanos);
+		if(latency.isSlow(latencyTolerance)){
+			decrease(latencyNanos);
+		}else if(inFlight * 2 >= limit){
+			// Only grow when the current limit is actually being used.
+			setLimit(limit + 1 / limit);
+		}
+		release();
+	}
+	
+	/**
+	 * Releases a slot after a request built from a plain path received a response in time.
+	 */
+	public void onSuccess(long latencyNanos){
+		onSuccess(null, latencyNanos);
+	}
+	
+	/**
+	 * Releases a slot after a request failed in a way that suggests Reddit is overloaded.
+	 *
+	 * @param latencyNanos How long ago the request was sent.
+	 */
+	public synchronized void onDropped(long latencyNanos){
+		decrease(latencyNanos);
+		release();
+	}
+	
+	/**
+	 * Lowers the limit, unless the request was sent before the last decrease.
+	 */
+	private void decrease(long latencyNanos){
+		long now = System.nanoTime();
+		// Compared directly rather than by difference, so the initial Long.MIN_VALUE is before every request.
+		if(now - latencyNanos < decreasedAt){
+			return;
+		}
+		decreasedAt = now;
+		setLimit(limit * backoffRatio);
+	}
+	
+	private void setLimit(double newLimit){
+		int previous = getLimit();
+		limit = Math.max(minLimit, Math.min(maxLimit, newLimit));
+		int current = getLimit();
+		if(previous != current){
+			log.trace("Concurrency limit changed from {} to {}", previous, current);
+			if(history.size() >= HISTORY_SIZE){
+				history.removeFirst();
+			}
+			history.addLast(new LimitChange(Instant.now(), current));
+		}
+	}
+	
+	public synchronized int getLimit(){
+		return (int) limit;
+	}
+	
+	public synchronized int getInFlight(){
+		return inFlight;
+	}
+	
+	public double getLatencyTolerance(){
+		return latencyTolerance;
+	}
+	
+	/**
+	 * @return The most recent changes to the limit, oldest first.
+	 */
+	public synchronized List<LimitChange> getHistory(){
+		return new ArrayList<>(history);
+	}
+	
+	public record LimitChange(Instant time, int limit){}
+	
+	/**
+	 * The usual and the recent latency of an endpoint, as moving averages in nanoseconds.
+	 */
+	private static class Latency{
+		
+		private double baseline, recent;
+		private int samples;
+		
+		private void add(long latencyNanos){
+			++samples;
+			if(samples == 1){
+				baseline = recent = latencyNanos;
+				return;
+			}
+			// A plain average until warmed up, so the first response does not become the baseline on its own.
+			baseline += (latencyNanos - baseline) * (samples <= WARMUP_SAMPLES ? 1.0 / samples : BASELINE_SMOOTHING);
+			recent += (latencyNanos - recent) * RECENT_SMOOTHING;
+		}
+		
+		private boolean isSlow(double tolerance){
+			return samples > WARMUP_SAMPLES && recent > baseline * tolerance;
+		}
+	}
+}
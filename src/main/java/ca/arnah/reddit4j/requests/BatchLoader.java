@@ -0,0 +1,224 @@
+/*
+ * Copyright (c) 2023, Arnah <github@arnah.ca>
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 3. Neither the name of the copyright holder nor the names of its
+ *    contributors may be used to endorse or promote products derived from
+ *    this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package ca.arnah.reddit4j.requests;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import ca.arnah.reddit4j.RedditClient;
+import lombok.extern.log4j.Log4j2;
+
+/**
+ * Batches individual {@link #load(String)} calls by id into as few requests as possible, and remembers the results.
+ * <p>
+ * Calls made within the batching window of each other are sent together, a batch is sent right away once it holds the maximum amount of ids.
+ * Repeated calls for an id share the same result until it expires. Ids missing from a response resolve to <code>null</code>, which is
+ * remembered as well so they are not asked for again.
+ *
+ * @param <V> The type of the values looked up.
+ */
+@Log4j2
+public abstract class BatchLoader<V>{
+	
+	private final Duration window;
+	private final int maxBatchSize;
+	private final Duration ttl;
+	private final Duration negativeTtl;
+	private final ReentrantLock lock = new ReentrantLock();
+	/**
+	 * Every id requested and not yet expired, guarded by {@link #lock}.
+	 */
+	private final LinkedHashMap<String, Entry<V>> memo;
+	/**
+	 * Ids waiting for the next batch, guarded by {@link #lock}.
+	 */
+	private Map<String, CompletableFuture<V>> pending = new LinkedHashMap<>();
+	private boolean scheduled;
+	
+	/**
+	 * @param ttl How long a value is remembered, <code>null</code> for as long as this loader exists.
+	 * @param negativeTtl How long an id that resolved to nothing is remembered, <code>null</code> for as long as this loader exists.
+	 * @param maxEntries How many ids to remember, the least recently used are forgotten first.
+	 */
+	protected BatchLoader(Duration window, int maxBatchSize, Duration ttl, Duration negativeTtl, int maxEntries){
+		this.window = window;
+		this.maxBatchSize = Math.min(maxBatchSize, RedditClient.MAX_IDS_PER_REQUEST);
+		this.ttl = ttl;
+		this.negativeTtl = negativeTtl;
+		this.memo = new LinkedHashMap<>(16, 0.75f, true){
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<String, Entry<V>> eldest){
+				return size() > maxEntries && eldest.getValue().future.isDone();
+			}
+		};
+	}
+	
+	/**
+	 * Requests the values of the given ids.
+	 *
+	 * @return The values by id, ids that are missing resolve to <code>null</code>.
+	 */
+	protected abstract CompletableFuture<Map<String, V>> fetch(Collection<String> ids);
+	
+	/**
+	 * @return The value, or <code>null</code> if it does not exist.
+	 */
+	public CompletableFuture<V> load(String id){
+		Map<String, CompletableFuture<V>> batch = null;
+		CompletableFuture<V> future;
+		lock.lock();
+		try{
+			Entry<V> entry = memo.get(id);
+			if(entry != null && !entry.isExpired(System.nanoTime())){
+				return entry.future;
+			}
+			future = new CompletableFuture<>();
+			memo.put(id, new Entry<>(future));
+			pending.put(id, future);
+			if(pending.size() >= maxBatchSize){
+				batch = takePending();
+			}else if(!scheduled){
+				scheduled = true;
+				CompletableFuture.delayedExecutor(window.toNanos(), TimeUnit.NANOSECONDS).execute(this::flush);
+			}
+		}finally{
+			lock.unlock();
+		}
+		if(batch != null){
+			dispatch(batch);
+		}
+		return future;
+	}
+	
+	/**
+	 * @return The values in the same order as the ids, with <code>null</code> for values that do not exist.
+	 */
+	public CompletableFuture<List<V>> loadAll(Collection<String> ids){
+		List<CompletableFuture<V>> futures = ids.stream().map(this::load).toList();
+		return CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new)).thenApply(v->futures.stream().map(CompletableFuture::join).toList());
+	}
+	
+	/**
+	 * Sends everything that is waiting for the window to pass right away.
+	 */
+	public void flush(){
+		Map<String, CompletableFuture<V>> batch;
+		lock.lock();
+		try{
+			scheduled = false;
+			batch = takePending();
+		}finally{
+			lock.unlock();
+		}
+		if(!batch.isEmpty()){
+			dispatch(batch);
+		}
+	}
+	
+	/**
+	 * Forgets every result, so the next {@link #load(String)} of any id requests it again.
+	 */
+	public void clear(){
+		lock.lock();
+		try{
+			memo.keySet().retainAll(pending.keySet());
+		}finally{
+			lock.unlock();
+		}
+	}
+	
+	private Map<String, CompletableFuture<V>> takePending(){
+		Map<String, CompletableFuture<V>> batch = pending;
+		pending = new LinkedHashMap<>();
+		return batch;
+	}
+	
+	private void dispatch(Map<String, CompletableFuture<V>> batch){
+		log.trace("Loading {} ids", batch.size());
+		CompletableFuture<Map<String, V>> fetched;
+		try{
+			fetched = fetch(batch.keySet());
+		}catch(RuntimeException ex){
+			fetched = CompletableFuture.failedFuture(ex);
+		}
+		fetched.whenComplete((values, throwable)->{
+			lock.lock();
+			try{
+				for(Map.Entry<String, CompletableFuture<V>> pending : batch.entrySet()){
+					Entry<V> entry = memo.get(pending.getKey());
+					if(entry == null || entry.future != pending.getValue()) continue;
+					if(throwable != null){
+						// Let a later call try again.
+						memo.remove(pending.getKey());
+					}else{
+						entry.expire(values.get(pending.getKey()) != null ? ttl : negativeTtl);
+					}
+				}
+			}finally{
+				lock.unlock();
+			}
+			batch.forEach((id, future)->{
+				if(throwable != null){
+					future.completeExceptionally(throwable);
+				}else{
+					future.complete(values.get(id));
+				}
+			});
+		});
+	}
+	
+	private static class Entry<V>{
+		
+		private final CompletableFuture<V> future;
+		/**
+		 * Both guarded by the lock of the loader, an entry does not expire while its value is loading.
+		 */
+		private boolean expires;
+		private long expiresAt;
+		
+		Entry(CompletableFuture<V> future){
+			this.future = future;
+		}
+		
+		void expire(Duration ttl){
+			if(ttl != null){
+				expires = true;
+				expiresAt = System.nanoTime() + ttl.toNanos();
+			}
+		}
+		
+		boolean isExpired(long now){
+			return expires && now - expiresAt >= 0;
+		}
+	}
+}
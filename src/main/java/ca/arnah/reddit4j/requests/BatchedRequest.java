@@ -0,0 +1,173 @@
+/*
+ * Copyright (c) 2023, Arnah <github@arnah.ca>
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 3. Neither the name of the copyright holder nor the names of its
+ *    contributors may be used to endorse or promote products derived from
+ *    this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package ca.arnah.reddit4j.requests;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+/**
+ * A request split into several {@link RedditRequest}s, such as when asking for more ids than a single request allows.<br>
+ * The batches are queued together and run concurrently as far as the {@link RateLimiter} allows. Results can be taken as a single list in
+ * the original order, or batch by batch as they complete.
+ *
+ * @param <T> The type of the items returned by each batch.
+ */
+public class BatchedRequest<T>{
+	
+	private final List<RedditRequest<?>> requests;
+	private final Function<Object, List<T>> mapper;
+	/**
+	 * Guarded by this. The futures returned by {@link RedditRequest#executeAsync()}, cancelling one takes its request off the queue.
+	 */
+	private List<CompletableFuture<?>> executions;
+	/**
+	 * Guarded by this.
+	 */
+	private List<CompletableFuture<List<T>>> batches;
+	
+	@SuppressWarnings("unchecked")
+	public <R> BatchedRequest(List<RedditRequest<R>> requests, Function<R, List<T>> mapper){
+		this.requests = new ArrayList<>(requests);
+		this.mapper = (Function<Object, List<T>>) mapper;
+	}
+	
+	/**
+	 * Splits the given values into batches of at most <code>maxSize</code> values, whose comma separated length does not exceed
+	 * <code>maxLength</code>. A single value longer than <code>maxLength</code> gets a batch of its own.
+	 */
+	public static List<List<String>> partition(Collection<String> values, int maxSize, int maxLength){
+		List<List<String>> batches = new ArrayList<>();
+		List<String> batch = new ArrayList<>();
+		int length = 0;
+		for(String value : values){
+			int added = batch.isEmpty() ? value.length() : value.length() + 1;
+			if(!batch.isEmpty() && (batch.size() >= maxSize || length + added > maxLength)){
+				batches.add(batch);
+				batch = new ArrayList<>();
+				length = 0;
+				added = value.length();
+			}
+			batch.add(value);
+			length += added;
+		}
+		if(!batch.isEmpty()){
+			batches.add(batch);
+		}
+		return batches;
+	}
+	
+	/**
+	 * Queues every batch, only the first call has any effect.
+	 *
+	 * @return The result of each batch, in the same order as the batches. Cancelling one cancels its request.
+	 */
+	public synchronized List<CompletableFuture<List<T>>> getBatches(){
+		if(batches == null){
+			executions = new ArrayList<>(requests.size());
+			batches = new ArrayList<>(requests.size());
+			for(RedditRequest<?> request : requests){
+				CompletableFuture<?> execution = request.executeAsync();
+				CompletableFuture<List<T>> batch = execution.thenApply(mapper);
+				// Cancelling the mapped future does not reach the request it depends on.
+				batch.whenComplete((items, throwable)->{
+					if(batch.isCancelled()){
+						execution.cancel(true);
+					}
+				});
+				executions.add(execution);
+				batches.add(batch);
+			}
+		}
+		return batches;
+	}
+	
+	/**
+	 * @return All items in the original order, once every batch is done. Cancelling it cancels the batches that are not done yet.
+	 */
+	public CompletableFuture<List<T>> executeAsync(){
+		List<CompletableFuture<List<T>>> batches = getBatches();
+		List<CompletableFuture<?>> executions = getExecutions();
+		CompletableFuture<List<T>> future = CompletableFuture.allOf(batches.toArray(CompletableFuture[]::new)).thenApply(v->{
+			List<T> items = new ArrayList<>();
+			for(CompletableFuture<List<T>> batch : batches){
+				items.addAll(batch.join());
+			}
+			return items;
+		});
+		future.whenComplete((items, throwable)->{
+			if(future.isCancelled()){
+				executions.forEach(execution->execution.cancel(true));
+			}
+		});
+		return future;
+	}
+	
+	private synchronized List<CompletableFuture<?>> getExecutions(){
+		return executions;
+	}
+	
+	public List<T> execute(){
+		try{
+			return executeAsync().get();
+		}catch(Exception ex){
+			throw new RuntimeException(ex);
+		}
+	}
+	
+	/**
+	 * @return The result of each batch in the order they complete, blocking while none is available. A failed batch throws a
+	 * {@link CompletionException} when reached.
+	 */
+	public Stream<List<T>> streamCompleted(){
+		List<CompletableFuture<List<T>>> batches = getBatches();
+		BlockingQueue<CompletableFuture<List<T>>> completed = new LinkedBlockingQueue<>();
+		batches.forEach(batch->batch.whenComplete((items, throwable)->completed.add(batch)));
+		return Stream.generate(()->{
+			try{
+				return completed.take().join();
+			}catch(InterruptedException ex){
+				Thread.currentThread().interrupt();
+				throw new CompletionException(ex);
+			}
+		}).limit(batches.size());
+	}
+	
+	/**
+	 * @return How many requests this was split into.
+	 */
+	public int size(){
+		return requests.size();
+	}
+}
@@ -0,0 +1,147 @@
+/*
+ * Copyright (c) 2023, Arnah <github@arnah.ca>
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 3. Neither the name of the copyright holder nor the names of its
+ *    contributors may be used to endorse or promote products derived from
+ *    this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package ca.arnah.reddit4j.requests;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import ca.arnah.reddit4j.requests.cache.ContentHashCache;
+
+/**
+ * A {@link FilterInputStream} that keeps a copy of every byte read from the wrapped stream and hashes it on the way, so a body can be decoded
+ * while it streams in and still be cached afterwards. Closing the stream reads whatever the consumer left unread, so the copy is always the
+ * whole body.
+ */
+class CapturingInputStream extends FilterInputStream{
+	
+	private final Buffer buffer = new Buffer();
+	private final boolean hashing;
+	private long hash = ContentHashCache.FNV_OFFSET_BASIS;
+	private boolean closed;
+	
+	/**
+	 * @param hashing Whether to compute the {@link ContentHashCache} hash of the body.
+	 */
+	CapturingInputStream(InputStream in, boolean hashing){
+		super(in);
+		this.hashing = hashing;
+	}
+	
+	@Override
+	public int read() throws IOException{
+		int read = super.read();
+		if(read != -1){
+			buffer.write(read);
+			if(hashing){
+				hash = ContentHashCache.hash(hash, new byte[]{(byte) read}, 0, 1);
+			}
+		}
+		return read;
+	}
+	
+	@Override
+	public int read(byte[] b, int off, int len) throws IOException{
+		int read = super.read(b, off, len);
+		if(read > 0){
+			buffer.write(b, off, read);
+			if(hashing){
+				hash = ContentHashCache.hash(hash, b, off, read);
+			}
+		}
+		return read;
+	}
+	
+	@Override
+	public long skip(long n) throws IOException{
+		// Skipped bytes have to be captured as well.
+		byte[] skipped = new byte[(int) Math.min(n, 8192)];
+		int read = read(skipped, 0, skipped.length);
+		return Math.max(read, 0);
+	}
+	
+	@Override
+	public boolean markSupported(){
+		return false;
+	}
+	
+	/**
+	 * Reads the rest of the wrapped stream into the copy.
+	 */
+	void drain() throws IOException{
+		byte[] bytes = new byte[8192];
+		while(read(bytes, 0, bytes.length) != -1){
+			// Captured by read.
+		}
+	}
+	
+	@Override
+	public void close() throws IOException{
+		if(closed) return;
+		closed = true;
+		try{
+			drain();
+		}finally{
+			super.close();
+		}
+	}
+	
+	long getHash(){
+		return hash;
+	}
+	
+	/**
+	 * @return The bytes read so far, only valid up to {@link #size()}. Not a copy, must not be modified.
+	 */
+	byte[] array(){
+		return buffer.array();
+	}
+	
+	int size(){
+		return buffer.size();
+	}
+	
+	/**
+	 * @return A stream over the bytes read so far, without copying them.
+	 */
+	InputStream replay(){
+		return new ByteArrayInputStream(buffer.array(), 0, buffer.size());
+	}
+	
+	private static class Buffer extends ByteArrayOutputStream{
+		
+		Buffer(){
+			super(8192);
+		}
+		
+		byte[] array(){
+			return buf;
+		}
+	}
+}
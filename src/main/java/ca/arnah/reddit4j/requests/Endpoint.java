@@ -58,6 +58,10 @@ public enum Endpoint{
 	 * Represents an endpoint described <a href="https://www.reddit.com/dev/api#POST_api_editusertext">here</a>.
 	 */
 	POST_EDITUSERTEXT("api/editusertext"),
+	/**
+	 * Represents an endpoint described <a href="https://www.reddit.com/dev/api#GET_api_info">here</a>.
+	 */
+	GET_INFO("/api/info"),
 	GET_MORE_CHILDREN("/api/morechildren"),
 	/**
 	 * Represents an endpoint described <a href="https://www.reddit.com/dev/api#POST_api_submit">here</a>.
@@ -88,8 +92,12 @@ public enum Endpoint{
 	/**
 	 * Represents an endpoint described <a href="https://www.reddit.com/dev/api#POST_api_subscribe">here</a>.
 	 */
-	POST_SUBSCRIBE("api/subscribe")
+	POST_SUBSCRIBE("api/subscribe"),
 	// Users
+	/**
+	 * Represents an endpoint described <a href="https://www.reddit.com/dev/api#GET_api_user_data_by_account_ids">here</a>.
+	 */
+	GET_USER_DATA_BY_ACCOUNT_IDS("/api/user_data_by_account_ids")
 	// Widgets
 	// Wiki
 	;
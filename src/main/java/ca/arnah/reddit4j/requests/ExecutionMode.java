@@ -0,0 +1,118 @@
+/*
+ * Copyright (c) 2023, Arnah <github@arnah.ca>
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 3. Neither the name of the copyright holder nor the names of its
+ *    contributors may be used to endorse or promote products derived from
+ *    this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package ca.arnah.reddit4j.requests;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Which kind of threads the {@link RateLimiter} uses to execute requests, refresh access tokens and decode responses.
+ * <p>
+ * Requests are sent with a blocking call on purpose, see {@link RedditRequest}. That is a perfect fit for virtual threads, but those need
+ * JDK 21 while this library targets JDK 17, so they are looked up reflectively.
+ */
+public enum ExecutionMode{
+	/**
+	 * A cached pool of platform threads, works on every supported JDK.
+	 */
+	PLATFORM{
+		@Override
+		public boolean isSupported(){
+			return true;
+		}
+		
+		@Override
+		public ThreadFactory threadFactory(String prefix){
+			AtomicInteger count = new AtomicInteger(0);
+			return r->new Thread(r, "%s-%d".formatted(prefix, count.incrementAndGet()));
+		}
+		
+		@Override
+		public ExecutorService newExecutor(String prefix){
+			return Executors.newCachedThreadPool(threadFactory(prefix));
+		}
+	},
+	/**
+	 * A new virtual thread per task, requires JDK 21 or newer. On older versions the {@link RateLimiter} falls back to {@link #PLATFORM}.
+	 */
+	VIRTUAL{
+		@Override
+		public boolean isSupported(){
+			try{
+				Thread.class.getMethod("ofVirtual");
+				Executors.class.getMethod("newThreadPerTaskExecutor", ThreadFactory.class);
+				return true;
+			}catch(NoSuchMethodException ex){
+				return false;
+			}
+		}
+		
+		@Override
+		public ThreadFactory threadFactory(String prefix){
+			try{
+				Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+				Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+				builder = builderClass.getMethod("name", String.class, long.class).invoke(builder, prefix + "-", 1L);
+				return (ThreadFactory) builderClass.getMethod("factory").invoke(builder);
+			}catch(ReflectiveOperationException | RuntimeException ex){
+				throw new UnsupportedOperationException("Virtual threads require JDK 21 or newer, running on " + Runtime.version(), ex);
+			}
+		}
+		
+		@Override
+		public ExecutorService newExecutor(String prefix){
+			ThreadFactory factory = threadFactory(prefix);
+			try{
+				Method method = Executors.class.getMethod("newThreadPerTaskExecutor", ThreadFactory.class);
+				return (ExecutorService) method.invoke(null, factory);
+			}catch(ReflectiveOperationException ex){
+				throw new UnsupportedOperationException("Virtual threads require JDK 21 or newer, running on " + Runtime.version(), ex);
+			}
+		}
+	};
+	
+	/**
+	 * @return If the running JDK supports this mode.
+	 */
+	public abstract boolean isSupported();
+	
+	/**
+	 * @param prefix The name of the created threads, followed by a counter.
+	 * @throws UnsupportedOperationException If the mode is not supported by the running JDK.
+	 */
+	public abstract ThreadFactory threadFactory(String prefix);
+	
+	/**
+	 * @return An executor that starts a thread for every task that can not be handled by an idle one.
+	 * @throws UnsupportedOperationException If the mode is not supported by the running JDK.
+	 */
+	public abstract ExecutorService newExecutor(String prefix);
+}
@@ -0,0 +1,185 @@
+/*
+ * Copyright (c) 2023, Arnah <github@arnah.ca>
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 3. Neither the name of the copyright holder nor the names of its
+ *    contributors may be used to endorse or promote products derived from
+ *    this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package ca.arnah.reddit4j.requests;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A blocking queue with one FIFO lane per {@link RequestPriority}.
+ * <p>
+ * Requests are taken from the highest non-empty lane. Once the oldest request of a lower lane has been waiting longer than the starvation
+ * timeout, it is starved: after every few requests taken from the highest lane, the longest waiting starved request is taken instead. Bulk
+ * work keeps moving, while a higher lane still gets most of the picks and waits behind at most one starved request, however deep the backlog
+ * below it is.
+ */
+public class PriorityRequestQueue{
+	
+	public static final long DEFAULT_STARVATION_TIMEOUT = TimeUnit.SECONDS.toNanos(10);
+	public static final int DEFAULT_STARVED_PICK_INTERVAL = 4;
+	
+	private static final RequestPriority[] priorities = RequestPriority.values();
+	
+	private final ReentrantLock lock = new ReentrantLock();
+	private final Condition notEmpty = lock.newCondition();
+	private final Deque<Entry>[] lanes;
+	private final long starvationTimeout;
+	private final int starvedPickInterval;
+	private int size;
+	/**
+	 * How many times the highest lane was taken while a lower lane was starved, since the last starved request was taken.
+	 */
+	private int passedOver;
+	
+	public PriorityRequestQueue(){
+		this(DEFAULT_STARVATION_TIMEOUT);
+	}
+	
+	/**
+	 * @param starvationTimeout Nanoseconds a request can wait before it is considered starved.
+	 */
+	public PriorityRequestQueue(long starvationTimeout){
+		this(starvationTimeout, DEFAULT_STARVED_PICK_INTERVAL);
+	}
+	
+	/**
+	 * @param starvationTimeout Nanoseconds a request can wait before it is considered starved.
+	 * @param starvedPickInterval How many requests are taken from higher lanes before a starved request is taken.
+	 */
+	@SuppressWarnings({"unchecked", "rawtypes"})
+	public PriorityRequestQueue(long starvationTimeout, int starvedPickInterval){
+		if(starvedPickInterval < 0){
+			throw new IllegalArgumentException("Starved pick interval must not be negative, was " + starvedPickInterval);
+		}
+		this.starvationTimeout = starvationTimeout;
+		this.starvedPickInterval = starvedPickInterval;
+		this.lanes = new Deque[priorities.length];
+		for(int i = 0; i < lanes.length; i++){
+			lanes[i] = new ArrayDeque<>();
+		}
+	}
+	
+	public void add(RedditRequest<?> request){
+		lock.lock();
+		try{
+			lanes[request.getPriority().ordinal()].addLast(new Entry(request, System.nanoTime()));
+			++size;
+			notEmpty.signal();
+		}finally{
+			lock.unlock();
+		}
+	}
+	
+	/**
+	 * Blocks until a request is available.
+	 */
+	public RedditRequest<?> take() throws InterruptedException{
+		lock.lockInterruptibly();
+		try{
+			while(size == 0){
+				notEmpty.await();
+			}
+			--size;
+			return lanes[nextLane(System.nanoTime())].pollFirst().request();
+		}finally{
+			lock.unlock();
+		}
+	}
+	
+	/**
+	 * @return The next request, or <code>null</code> if none was added before the timeout.
+	 */
+	public RedditRequest<?> poll(long timeout, TimeUnit unit) throws InterruptedException{
+		long nanos = unit.toNanos(timeout);
+		lock.lockInterruptibly();
+		try{
+			while(size == 0){
+				if(nanos <= 0) return null;
+				nanos = notEmpty.awaitNanos(nanos);
+			}
+			--size;
+			return lanes[nextLane(System.nanoTime())].pollFirst().request();
+		}finally{
+			lock.unlock();
+		}
+	}
+	
+	private int nextLane(long now){
+		int highest = -1, starved = -1;
+		long longestWait = starvationTimeout;
+		for(int i = 0; i < lanes.length; i++){
+			Entry head = lanes[i].peekFirst();
+			if(head == null) continue;
+			if(highest == -1){
+				highest = i;
+				continue;
+			}
+			long waited = now - head.queuedAt();
+			if(waited > longestWait){
+				longestWait = waited;
+				starved = i;
+			}
+		}
+		if(starved == -1){
+			passedOver = 0;
+			return highest;
+		}
+		if(passedOver >= starvedPickInterval){
+			passedOver = 0;
+			return starved;
+		}
+		++passedOver;
+		return highest;
+	}
+	
+	public int size(){
+		lock.lock();
+		try{
+			return size;
+		}finally{
+			lock.unlock();
+		}
+	}
+	
+	/**
+	 * @return The amount of requests waiting in the given lane.
+	 */
+	public int size(RequestPriority priority){
+		lock.lock();
+		try{
+			return lanes[priority.ordinal()].size();
+		}finally{
+			lock.unlock();
+		}
+	}
+	
+	private record Entry(RedditRequest<?> request, long queuedAt){}
+}
@@ -27,49 +27,107 @@
 
 package ca.arnah.reddit4j.requests;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.http.HttpHeaders;
 import java.net.http.HttpResponse;
+import java.time.Duration;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
-import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.TimeUnit;
-import java.util.concurrent.atomic.AtomicInteger;
-import java.util.concurrent.atomic.AtomicLong;
+import ca.arnah.reddit4j.exceptions.HttpStatusCodeException;
 import lombok.extern.log4j.Log4j2;
 
+/**
+ * Paces queued requests so the <code>x-ratelimit-remaining</code> budget is spread evenly over the time left until
+ * <code>x-ratelimit-reset</code>, instead of bursting through it and then stalling.
+ * <p>
+ * The budget is reconciled from the headers of every response. Requests that have been sent but have not received a response yet are
+ * treated as already spent, since the server might not have counted them in the headers we last saw.
+ * <p>
+ * Queued requests wait in a {@link PriorityRequestQueue}, so each permit goes to the highest {@link RequestPriority} waiting at that time.
+ * How many requests may be in flight at once is decided by an {@link AdaptiveConcurrencyLimit}.
+ */
 @Log4j2
 public class RateLimiter{
 	
-	private final LinkedBlockingQueue<RedditRequest<?>> queue;
+	private final PriorityRequestQueue queue;
+	private final AdaptiveConcurrencyLimit concurrencyLimit;
 	private final ExecutorService executor, worker;
-	private final AtomicInteger threadCount = new AtomicInteger(0);
-	private final AtomicLong remaining = new AtomicLong(600), resetDelay = new AtomicLong(0), used = new AtomicLong(0);
-	private boolean running = true;
+	private final ExecutionMode executionMode;
+	private volatile boolean running = true;
+	
+	// Pacing state, guarded by this.
+	/**
+	 * If we have received any rate limit headers yet, requests are not paced until then.
+	 */
+	private boolean known;
+	private double remaining;
+	private long limit;
+	/**
+	 * The longest time until reset seen, which is how long a window lasts.
+	 */
+	private long window;
+	private long resetAt;
+	private long lastDispatch;
+	private int inFlight;
 	
 	public RateLimiter(){
-		this.queue = new LinkedBlockingQueue<>();
-		this.executor = Executors.newSingleThreadExecutor(r->new Thread(r, "RateLimiter-%d".formatted(threadCount.incrementAndGet())));
-		this.worker = Executors.newCachedThreadPool(r->new Thread(r, "RateLimiter-%d".formatted(threadCount.incrementAndGet())));
+		this(ExecutionMode.PLATFORM, new AdaptiveConcurrencyLimit());
+	}
+	
+	/**
+	 * @param executionMode The kind of threads used to execute requests and decode their responses, {@link ExecutionMode#PLATFORM} is used
+	 * instead if the running JDK does not support it.
+	 */
+	public RateLimiter(ExecutionMode executionMode, AdaptiveConcurrencyLimit concurrencyLimit){
+		if(!executionMode.isSupported()){
+			log.warn("{} execution is not supported on JDK {}, falling back to {}", executionMode, Runtime.version(), ExecutionMode.PLATFORM);
+			executionMode = ExecutionMode.PLATFORM;
+		}
+		this.queue = new PriorityRequestQueue();
+		this.concurrencyLimit = concurrencyLimit;
+		this.executionMode = executionMode;
+		this.executor = Executors.newSingleThreadExecutor(executionMode.threadFactory("RateLimiter"));
+		this.worker = executionMode.newExecutor("RateLimiter-Worker");
 		executor.execute(()->{
-			// Need to do better ratelimit handling
 			while(running){
+				RedditRequest<?> currentRequest = null;
+				boolean acquired = false;
 				try{
-					RedditRequest<?> currentRequest = queue.poll(10, TimeUnit.SECONDS);
-					if(currentRequest == null) continue;
-					if(remaining.get() <= 0){
-						try{
-							long delay = resetDelay.incrementAndGet();
-							log.debug("Delaying requests for {} seconds due to ratelimit", delay);
-							Thread.sleep(TimeUnit.SECONDS.toMillis(delay));
-						}catch(InterruptedException ex){
-							log.warn("Got interrupted while waiting for a rate limit", ex);
-							currentRequest.getResult().completeExceptionally(ex);
-							continue;
-						}
+					// Wait for a free slot and the pacing first, so the request picked is the most important one at the time it can actually be sent.
+					concurrencyLimit.acquire();
+					acquired = true;
+					awaitPermit();
+					currentRequest = queue.take();
+					// The budget could have changed while waiting for a request.
+					awaitPermit();
+					if(currentRequest.isAbandoned()){
+						log.trace("Dropping cancelled or expired request");
+						concurrencyLimit.release();
+						acquired = false;
+						continue;
 					}
+					dispatched();
+					RedditRequest<?> request = currentRequest;
 					// Shove the request into the worker thread pool to prevent it slowing down the rate limiter.
-					worker.submit(()->execute(currentRequest));
+					worker.submit(()->execute(request));
+					// The worker releases the slot once the request is done.
+					acquired = false;
+				}catch(InterruptedException ex){
+					if(acquired){
+						concurrencyLimit.release();
+					}
+					if(currentRequest != null){
+						log.warn("Got interrupted while waiting for a rate limit", ex);
+						currentRequest.getResult().completeExceptionally(ex);
+					}
+					if(!running) return;
 				}catch(Throwable ex){
+					if(acquired){
+						concurrencyLimit.release();
+					}
 					log.catching(ex);
 				}
 			}
@@ -77,22 +135,77 @@ public class RateLimiter{
 	}
 	
 	private void execute(RedditRequest<?> request){
+		if(request.isAbandoned()){
+			release(null);
+			concurrencyLimit.release();
+			return;
+		}
+		request.setExecutingThread(Thread.currentThread());
 		try{
+			HttpResponse<InputStream> response;
+			long start = System.nanoTime();
 			try{
-				remaining.decrementAndGet();
-				handleResponse(request, request.executeRequest());
+				response = request.executeRequest();
+			}catch(HttpStatusCodeException ex){
+				release(ex.getHeaders());
+				int status = ex.getStatusCode();
+				if(status == 429 || status >= 500){
+					concurrencyLimit.onDropped(System.nanoTime() - start);
+				}else{
+					concurrencyLimit.onSuccess(request.getEndpoint(), System.nanoTime() - start);
+				}
+				throw ex;
+			}catch(IOException ex){
+				release(null);
+				if(request.isAbandoned()){
+					// Aborted on purpose, says nothing about how Reddit is doing.
+					concurrencyLimit.release();
+				}else{
+					concurrencyLimit.onDropped(System.nanoTime() - start);
+				}
+				throw ex;
 			}catch(Exception ex){
-				request.getResult().completeExceptionally(ex);
+				release(null);
+				concurrencyLimit.release();
+				throw ex;
 			}
-			// Check if the request is done, if not, readd it to the queue
-			if(request.getResult().isDone()){
-				return;
-			}
-			log.trace("Readding request to queue after failed attempt");
-			queue.add(request);
+			release(response.headers());
+			concurrencyLimit.onSuccess(request.getEndpoint(), System.nanoTime() - start);
+			handleResponse(request, response);
 		}catch(Exception ex){
-			request.getResult().completeExceptionally(ex);
+			handleFailure(request, ex);
+		}finally{
+			request.setExecutingThread(null);
+			// Clear an interrupt from a cancellation that raced with the request finishing, so it does not leak into the next task.
+			Thread.interrupted();
+		}
+	}
+	
+	/**
+	 * Queues the request again if the {@link RetryPolicy} allows it, otherwise fails it.
+	 */
+	private void handleFailure(RedditRequest<?> request, Exception ex){
+		RetryPolicy retryPolicy = request.getRequestFactory().getRetryPolicy();
+		RequestStatistics statistics = request.getRequestFactory().getStatistics();
+		int retries = request.getRetries();
+		if(running && retryPolicy.shouldRetry(request, retries, ex)){
+			Duration delay = retryPolicy.getDelay(retries, ex);
+			request.incrementRetries();
+			statistics.recordRetry();
+			log.debug("Retrying request in {}ms after attempt {} failed: {}", delay.toMillis(), retries + 1, ex.getMessage());
+			CompletableFuture.delayedExecutor(delay.toMillis(), TimeUnit.MILLISECONDS).execute(()->{
+				if(running){
+					queue.add(request);
+				}else{
+					request.getResult().completeExceptionally(ex);
+				}
+			});
+			return;
 		}
+		if(retries > 0){
+			statistics.recordRetriesExhausted();
+		}
+		request.getResult().completeExceptionally(ex);
 	}
 	
 	public void shutdown(){
@@ -106,19 +219,115 @@ public class RateLimiter{
 		queue.add(request);
 	}
 	
-	private void handleResponse(RedditRequest<?> request, HttpResponse<String> result){
-		var headers = result.headers();
-		long newRemaining = (long) Double.parseDouble(headers.firstValue("x-ratelimit-remaining").orElse("600"));
-		long newResetDelay = headers.firstValueAsLong("x-ratelimit-reset").orElse(600);
+	/**
+	 * Blocks until the next request may be sent.
+	 */
+	private void awaitPermit() throws InterruptedException{
+		while(true){
+			long wait;
+			synchronized(this){
+				long now = System.nanoTime();
+				wait = nextPermit(now) - now;
+			}
+			if(wait <= 0) return;
+			if(wait > TimeUnit.SECONDS.toNanos(1)){
+				log.debug("Delaying requests for {}ms due to ratelimit", TimeUnit.NANOSECONDS.toMillis(wait));
+			}
+			TimeUnit.NANOSECONDS.sleep(wait);
+		}
+	}
+	
+	/**
+	 * Counts a request as in flight.
+	 */
+	private synchronized void dispatched(){
+		++inFlight;
+		lastDispatch = System.nanoTime();
+	}
+	
+	/**
+	 * @return The {@link System#nanoTime()} at which the next request may be sent.
+	 */
+	private long nextPermit(long now){
+		if(!known) return now;
+		if(now - resetAt >= 0){
+			// The window rolled over without us seeing a response from the new one, assume the budget was restored.
+			remaining = limit;
+			resetAt = now + window;
+		}
+		double budget = remaining - inFlight;
+		if(budget < 1){
+			return resetAt;
+		}
+		return lastDispatch + (long) ((resetAt - now) / budget);
+	}
+	
+	/**
+	 * Reconciles the pacing state from the headers of a finished request.
+	 *
+	 * @param headers The response headers, or <code>null</code> if no response was received.
+	 */
+	private synchronized void release(HttpHeaders headers){
+		--inFlight;
+		if(headers == null) return;
+		var remainingHeader = headers.firstValue("x-ratelimit-remaining");
+		var resetHeader = headers.firstValueAsLong("x-ratelimit-reset");
+		if(remainingHeader.isEmpty() || resetHeader.isEmpty()) return;
+		double newRemaining = Double.parseDouble(remainingHeader.get());
+		long newReset = TimeUnit.SECONDS.toNanos(resetHeader.getAsLong());
 		long newUsed = headers.firstValueAsLong("x-ratelimit-used").orElse(0);
-		remaining.set(newRemaining);
-		resetDelay.set(newResetDelay);
-		used.set(newUsed);
-		log.trace("RateLimit Remaining: {}, Reset: {}, Used: {}", newRemaining, newResetDelay, newUsed);
-		
-		CompletableFuture<HttpResponse<String>> requestResult = request.getResult();
-		if(!requestResult.isDone()){
-			requestResult.complete(result);
+		long newResetAt = System.nanoTime() + newReset;
+		// Responses can arrive out of order, within the same window only trust a lower remaining count.
+		boolean sameWindow = known && Math.abs(newResetAt - resetAt) < TimeUnit.SECONDS.toNanos(2);
+		remaining = sameWindow ? Math.min(remaining, newRemaining) : newRemaining;
+		resetAt = sameWindow ? Math.min(resetAt, newResetAt) : newResetAt;
+		limit = Math.max(limit, (long) newRemaining + newUsed);
+		window = Math.max(window, newReset);
+		known = true;
+		log.trace("RateLimit Remaining: {}, Reset: {}, Used: {}, In flight: {}", newRemaining, resetHeader.getAsLong(), newUsed, inFlight);
+	}
+	
+	private void handleResponse(RedditRequest<?> request, HttpResponse<InputStream> result){
+		CompletableFuture<HttpResponse<InputStream>> requestResult = request.getResult();
+		if(!requestResult.complete(result)){
+			// Cancelled or timed out while in flight, the late response is never decoded.
+			RedditRequest.closeQuietly(result);
 		}
 	}
+	
+	/**
+	 * @return The amount of requests left in the current window as of the last response, minus the requests still in flight.
+	 */
+	public synchronized double getRemaining(){
+		return remaining - inFlight;
+	}
+	
+	/**
+	 * @return Seconds until the current rate limit window resets.
+	 */
+	public synchronized long getSecondsUntilReset(){
+		return known ? Math.max(0, TimeUnit.NANOSECONDS.toSeconds(resetAt - System.nanoTime())) : 0;
+	}
+	
+	public synchronized int getInFlight(){
+		return inFlight;
+	}
+	
+	public ExecutionMode getExecutionMode(){
+		return executionMode;
+	}
+	
+	/**
+	 * @return The limit of requests in flight at once, including its history.
+	 */
+	public AdaptiveConcurrencyLimit getConcurrencyLimit(){
+		return concurrencyLimit;
+	}
+	
+	/**
+	 * @return The amount of requests waiting in the given lane.
+	 */
+	public int getQueued(RequestPriority priority){
+		return queue.size(priority);
+	}
 }
@@ -27,80 +27,188 @@
 
 package ca.arnah.reddit4j.requests;
 
+import java.io.FilterInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.InterruptedIOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
 import java.lang.reflect.Type;
 import java.net.URI;
-import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.time.Duration;
-import java.time.temporal.ChronoUnit;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.InflaterInputStream;
 import ca.arnah.reddit4j.exceptions.HttpStatusCodeException;
 import ca.arnah.reddit4j.factories.RedditRequestFactory;
 import ca.arnah.reddit4j.gson.adapters.ArrayListingAdapterFactory;
 import ca.arnah.reddit4j.gson.adapters.BooleanNumberTypeAdapterFactory;
 import ca.arnah.reddit4j.gson.adapters.ThingTypeAdapterFactory;
+import ca.arnah.reddit4j.requests.cache.ContentHashCache;
+import ca.arnah.reddit4j.requests.cache.DiskResponseCache;
+import ca.arnah.reddit4j.requests.cache.ResponseCache;
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
+import com.google.gson.stream.JsonReader;
 import lombok.Getter;
 import lombok.extern.log4j.Log4j2;
 
 @Log4j2
 public class RedditRequest<R>{
 	
+	public static final String ACCEPT_ENCODING = "Accept-Encoding";
+	public static final String CONTENT_ENCODING = "Content-Encoding";
+	public static final String ETAG = "ETag";
+	public static final String LAST_MODIFIED = "Last-Modified";
+	public static final String IF_NONE_MATCH = "If-None-Match";
+	public static final String IF_MODIFIED_SINCE = "If-Modified-Since";
+	public static final int NOT_MODIFIED = 304;
+	
 	private static final Gson gson = new GsonBuilder().registerTypeAdapterFactory(new BooleanNumberTypeAdapterFactory())
 		// Logs missing properties when parsing JSON.
 		//.registerTypeAdapterFactory(new ValidatorAdapterFactory())
 		.registerTypeAdapterFactory(new ThingTypeAdapterFactory()).registerTypeAdapterFactory(new ArrayListingAdapterFactory()).setPrettyPrinting().create();
-	/**
-	 * Following redirects for /random subreddit
-	 */
-	private static final HttpClient client = HttpClient.newBuilder()
-		.followRedirects(HttpClient.Redirect.ALWAYS)
-		.connectTimeout(Duration.of(30, ChronoUnit.SECONDS))
-		.build();
-	
+	@Getter
 	private final RedditRequestFactory requestFactory;
 	private final RequestPreprocessor requestPreprocessor;
 	private final HttpRequest.Builder request;
 	private final Class<R> responseClass;
 	private final Type type;
 	@Getter
-	private final CompletableFuture<HttpResponse<String>> result;
+	private final URI uri;
+	/**
+	 * The endpoint this request was built from, <code>null</code> if it was built from a plain path.
+	 */
+	@Getter
+	private final Endpoint endpoint;
+	@Getter
+	private final String method;
+	@Getter
+	private final RequestPriority priority;
+	/**
+	 * How long after {@link #executeAsync()} the request is abandoned, <code>null</code> for no deadline.
+	 */
+	@Getter
+	private final Duration timeout;
+	/**
+	 * Completed with the response once received, or exceptionally once cancelled, timed out or failed. A request with a completed result is
+	 * dropped by the {@link RateLimiter} before spending any budget.
+	 */
+	@Getter
+	private final CompletableFuture<HttpResponse<InputStream>> result;
+	private long deadline;
+	/**
+	 * Validators of the cached response this request revalidates, <code>null</code> for an unconditional request.
+	 */
+	private volatile ResponseCache.Validators validators;
+	/**
+	 * How many times this request has been queued again after failing.
+	 */
+	@Getter
+	private volatile int retries;
+	/**
+	 * The thread currently sending this request, interrupted to abort the exchange when the request is cancelled. Guarded by this.
+	 */
+	private Thread executingThread;
+	/**
+	 * Size of the last response body as received over the wire.
+	 */
+	@Getter
+	private volatile long compressedBytes;
+	/**
+	 * Size of the last response body after decompression.
+	 */
+	@Getter
+	private volatile long uncompressedBytes;
+	/**
+	 * Whether the last response body was identical to the previous one for the same request, in which case the previous object was returned.
+	 * Only tracked when the factory has a {@link ContentHashCache}.
+	 */
+	@Getter
+	private volatile boolean unchanged;
 	
-	protected RedditRequest(RedditRequestFactory requestFactory, HttpRequest.Builder request, RequestPreprocessor requestPreprocessor, Class<R> responseClass, Type type){
+	protected RedditRequest(RedditRequestFactory requestFactory, HttpRequest.Builder request, RequestPreprocessor requestPreprocessor, Class<R> responseClass, Type type, URI uri, Endpoint endpoint, String method, RequestPriority priority, Duration timeout){
 		this.requestFactory = requestFactory;
 		this.request = request;
 		this.requestPreprocessor = requestPreprocessor;
 		this.responseClass = responseClass;
 		this.type = type;
+		this.uri = uri;
+		this.endpoint = endpoint;
+		this.method = method;
+		this.priority = priority;
+		this.timeout = timeout;
 		this.result = new CompletableFuture<>();
+		result.whenComplete((response, throwable)->{
+			if(throwable != null){
+				abortExchange();
+			}
+		});
 	}
 	
-	HttpResponse<String> executeRequest() throws IOException{
-		HttpResponse<String> response;
+	HttpResponse<InputStream> executeRequest() throws IOException{
+		HttpResponse<InputStream> response;
 		try{
 			// buildRequest blocks if access token is expired.
 			// Because of this no reason exists to do HttpClient#sendAsync?
 			// Instead, put #executeRequest in a separate worker thread
 			var request = buildRequest();
 			log.trace("Sending request {}", request.uri());
-			response = client.send(request, HttpResponse.BodyHandlers.ofString());
+			// The body is left as a stream so it can be handed straight to Gson, the only time it gets read into memory is for error messages.
+			response = requestFactory.getTransport().send(request);
+			if(response.statusCode() == NOT_MODIFIED && validators != null){
+				return response;
+			}
 			if(response.statusCode() != 200){
+				String body;
+				try(InputStream in = openBody(response)){
+					body = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+				}
 				throw new HttpStatusCodeException("Received status code %d from request with header %s, body %s".formatted(response.statusCode(), response.headers()
-					.map(), response.body()), response.statusCode());
+					.map(), body), response.statusCode(), response.headers());
 			}
 			return response;
 		}catch(InterruptedException e){
-			throw new RuntimeException(e);
+			// Also how a cancelled request aborts its exchange, see #abortExchange.
+			throw (InterruptedIOException) new InterruptedIOException("Interrupted while sending request").initCause(e);
 		}
 	}
 	
+	void incrementRetries(){
+		++retries;
+	}
+	
+	/**
+	 * Marks the thread sending this request, or clears it with <code>null</code> once done.
+	 */
+	synchronized void setExecutingThread(Thread thread){
+		this.executingThread = thread;
+	}
+	
+	private synchronized void abortExchange(){
+		if(executingThread != null){
+			executingThread.interrupt();
+		}
+	}
+	
+	/**
+	 * @return If the request was cancelled, timed out or otherwise finished, and should no longer be sent.
+	 */
+	public boolean isAbandoned(){
+		return result.isDone();
+	}
+	
 	public R execute(){
 		try{
 			return executeAsync().get();
@@ -109,29 +217,268 @@ public class RedditRequest<R>{
 		}
 	}
 	
+	/**
+	 * Sends this request on the calling thread, bypassing the {@link RateLimiter} queue and its concurrency limit.<br>
+	 * Only meant for requests that other requests depend on, such as fetching an access token, which would otherwise wait for a slot held by the
+	 * very requests waiting on them.
+	 */
+	public R executeDirect() throws IOException{
+		return decode(openBody(executeRequest()));
+	}
+	
+	/**
+	 * Queues this request in the {@link RateLimiter}, unless the factory has a {@link ResponseCache} holding a response for it, or coalescing is
+	 * enabled and an identical <code>GET</code> request is already pending in which case its result is shared, see {@link RequestCoalescer}.<br>
+	 * Cancelling the returned future, or reaching the {@link Builder#timeout(Duration) timeout}, drops the request from the queue or aborts the
+	 * exchange if it is already in flight. A response that arrives afterwards is never decoded.
+	 */
 	public CompletableFuture<R> executeAsync(){
-		requestFactory.getRateLimiter().queue(this);
+		if(!method.equals("GET")){
+			return send(null, null);
+		}
+		ResponseCache.Key key = new ResponseCache.Key(method, uri, requestFactory.getIdentity(), type != null ? type : responseClass);
+		ResponseCache cache = requestFactory.getResponseCache();
+		if(cache != null){
+			@SuppressWarnings("unchecked")
+			R cached = (R) cache.get(key);
+			if(cached != null){
+				log.trace("Serving {} from cache", uri);
+				return CompletableFuture.completedFuture(cached);
+			}
+			cached = loadFromDisk(cache, key);
+			if(cached != null){
+				log.trace("Serving {} from disk cache", uri);
+				return CompletableFuture.completedFuture(cached);
+			}
+		}
+		RequestCoalescer coalescer = requestFactory.getCoalescer();
+		if(coalescer == null){
+			return send(cache, key);
+		}
+		CompletableFuture<R> future = coalescer.join(key, ()->send(cache, key));
+		if(timeout != null){
+			// Only bounds how long this caller waits, the shared exchange is bound by the timeout of the request that was sent.
+			future.orTimeout(timeout.toNanos(), TimeUnit.NANOSECONDS);
+		}
+		return future;
+	}
+	
+	/**
+	 * Decodes a body from the disk tier of the cache, and keeps the result in memory for the rest of its time to live.
+	 */
+	private R loadFromDisk(ResponseCache cache, ResponseCache.Key key){
+		DiskResponseCache disk = cache.getDiskCache();
+		if(disk == null) return null;
+		DiskResponseCache.Cached cached = disk.get(key);
+		if(cached == null) return null;
+		try{
+			ByteBuffer body = cached.body();
+			int size = body.remaining();
+			R decoded = decode(new InputStream(){
+				
+				@Override
+				public int read(){
+					return body.hasRemaining() ? body.get() & 0xff : -1;
+				}
+				
+				@Override
+				public int read(byte[] bytes, int offset, int length){
+					if(!body.hasRemaining()) return -1;
+					length = Math.min(length, body.remaining());
+					body.get(bytes, offset, length);
+					return length;
+				}
+			});
+			if(decoded != null){
+				cache.put(key, decoded, size, Duration.ofMillis(cached.expiresAt() - System.currentTimeMillis()));
+			}
+			return decoded;
+		}catch(Exception ex){
+			log.warn("Failed to decode cached response of {}, requesting it again", uri, ex);
+			return null;
+		}
+	}
+	
+	private CompletableFuture<R> send(ResponseCache cache, ResponseCache.Key cacheKey){
+		if(cache != null){
+			validators = cache.getValidators(cacheKey);
+		}
+		if(timeout != null){
+			deadline = System.nanoTime() + timeout.toNanos();
+			result.orTimeout(timeout.toNanos(), TimeUnit.NANOSECONDS);
+		}
 		CompletableFuture<R> future = new CompletableFuture<>();
+		future.whenComplete((r, throwable)->{
+			if(future.isCancelled()){
+				result.cancel(true);
+			}
+		});
 		result.whenComplete((result, throwable)->{
 			if(throwable != null){
 				future.completeExceptionally(throwable);
 				return;
 			}
+			if(future.isDone()){
+				closeQuietly(result);
+				return;
+			}
 			try{
-				if(type != null){
-					future.complete(gson.fromJson(result.body(), type));
-				}else{
-					future.complete(gson.fromJson(result.body(), responseClass));
+				if(result.statusCode() == NOT_MODIFIED){
+					closeQuietly(result);
+					Object cached = cache.revalidated(cacheKey, cache.getTtl(endpoint));
+					if(cached == null){
+						// Evicted while in flight, the object it was revalidated against is still valid.
+						cached = validators.value();
+					}
+					@SuppressWarnings("unchecked")
+					R value = (R) cached;
+					future.complete(value);
+					return;
 				}
+				R decoded = decode(result, cacheKey);
+				if(cache != null && decoded != null){
+					var headers = result.headers();
+					cache.put(cacheKey, decoded, uncompressedBytes, cache.getTtl(endpoint), headers.firstValue(ETAG).orElse(null), headers.firstValue(LAST_MODIFIED)
+						.orElse(null));
+				}
+				future.complete(decoded);
 			}catch(Throwable ex){
 				future.completeExceptionally(ex);
 			}
 		});
+		requestFactory.getRateLimiter().queue(this);
 		return future;
 	}
 	
+	/**
+	 * Discards the body of a response that will not be decoded.
+	 */
+	static void closeQuietly(HttpResponse<InputStream> response){
+		try{
+			response.body().close();
+		}catch(IOException ex){
+			log.trace("Failed to close discarded response body", ex);
+		}
+	}
+	
+	/**
+	 * Decodes the response body, or reuses the previous object for the same request if the factory has a {@link ContentHashCache} and the body
+	 * did not change. The raw body is also written to the {@link DiskResponseCache} if there is one.
+	 *
+	 * @param key Identifies the request, <code>null</code> for requests that are not idempotent.
+	 */
+	private R decode(HttpResponse<InputStream> response, ResponseCache.Key key) throws IOException{
+		ContentHashCache hashes = requestFactory.getContentHashCache();
+		ResponseCache cache = requestFactory.getResponseCache();
+		DiskResponseCache disk = cache != null ? cache.getDiskCache() : null;
+		if(key == null || (hashes == null && disk == null)){
+			return decode(openBody(response));
+		}
+		CapturingInputStream body = new CapturingInputStream(openBody(response), hashes != null);
+		R decoded = null;
+		if(hashes == null){
+			// Nothing to compare against, decode while the body streams in and keep the copy for the disk cache.
+			decoded = decode(body);
+		}else{
+			// The body has to be read in full before knowing if it changed, it is hashed while being read.
+			try(body){
+				body.drain();
+			}
+		}
+		if(disk != null){
+			try{
+				disk.put(key, body.array(), 0, body.size(), cache.getTtl(endpoint));
+			}catch(UncheckedIOException ex){
+				log.warn("Failed to write response of {} to disk cache", response.uri(), ex);
+			}
+		}
+		if(hashes == null){
+			return decoded;
+		}
+		@SuppressWarnings("unchecked")
+		R previous = (R) hashes.get(key, body.getHash());
+		unchanged = previous != null;
+		if(unchanged){
+			requestFactory.getStatistics().recordSkippedParse();
+			log.trace("Body of {} is unchanged, skipped decoding", response.uri());
+			return previous;
+		}
+		decoded = decode(body.replay());
+		if(decoded != null){
+			hashes.put(key, body.getHash(), decoded);
+		}
+		return decoded;
+	}
+	
+	/**
+	 * Decodes the response body directly from the stream, the body is never materialized as a {@link String}.
+	 */
+	private R decode(InputStream body) throws IOException{
+		try(Reader reader = new InputStreamReader(body, StandardCharsets.UTF_8)){
+			JsonReader jsonReader = gson.newJsonReader(reader);
+			if(type != null){
+				return gson.fromJson(jsonReader, type);
+			}
+			return gson.fromJson(jsonReader, responseClass);
+		}
+	}
+	
+	/**
+	 * Wraps the response body so that it is transparently decompressed based on the <code>Content-Encoding</code> header, while keeping track of
+	 * the compressed and uncompressed sizes. The sizes are recorded once the returned stream is closed.
+	 */
+	private InputStream openBody(HttpResponse<InputStream> response) throws IOException{
+		CountingInputStream compressed = new CountingInputStream(response.body());
+		CountingInputStream uncompressed = new CountingInputStream(decompress(response, compressed));
+		return new FilterInputStream(uncompressed){
+			
+			private boolean closed;
+			
+			@Override
+			public void close() throws IOException{
+				if(closed) return;
+				closed = true;
+				try{
+					super.close();
+				}finally{
+					compressedBytes = compressed.getCount();
+					uncompressedBytes = uncompressed.getCount();
+					requestFactory.getStatistics().recordResponse(compressedBytes, uncompressedBytes);
+					log.trace("Read {} bytes ({} uncompressed) from {}", compressedBytes, uncompressedBytes, response.uri());
+				}
+			}
+		};
+	}
+	
+	private static InputStream decompress(HttpResponse<InputStream> response, InputStream body) throws IOException{
+		String encoding = response.headers().firstValue(CONTENT_ENCODING).orElse("identity").trim().toLowerCase(Locale.ROOT);
+		return switch(encoding){
+			case "gzip", "x-gzip" -> new GZIPInputStream(body);
+			case "deflate" -> new InflaterInputStream(body);
+			default -> body;
+		};
+	}
+	
 	private HttpRequest buildRequest() throws IOException{
-		return requestPreprocessor.preprocess(request).build();
+		if(timeout != null && deadline != 0){
+			long remaining = deadline - System.nanoTime();
+			if(remaining <= 0){
+				throw new InterruptedIOException("Request deadline passed before it was sent");
+			}
+			request.timeout(Duration.ofNanos(remaining));
+		}
+		// Preprocessors add headers, copy so a retried request does not send them twice.
+		HttpRequest.Builder builder = request.copy();
+		ResponseCache.Validators validators = this.validators;
+		if(validators != null){
+			if(validators.etag() != null){
+				builder.header(IF_NONE_MATCH, validators.etag());
+			}
+			if(validators.lastModified() != null){
+				builder.header(IF_MODIFIED_SINCE, validators.lastModified());
+			}
+		}
+		return requestPreprocessor.preprocess(builder).build();
 	}
 	
 	public static class Builder<R>{
@@ -147,6 +494,10 @@ public class RedditRequest<R>{
 		private final RequestPreprocessor requestPreprocessor;
 		private final Class<R> responseClass;
 		private final Type type;
+		private Endpoint endpoint;
+		private String method = "GET";
+		private RequestPriority priority;
+		private Duration timeout;
 		
 		public Builder(RedditRequestFactory requestFactory, String url, RequestPreprocessor requestPreprocessor, Class<R> responseClass, Type type){
 			this.requestFactory = requestFactory;
@@ -154,15 +505,18 @@ public class RedditRequest<R>{
 			this.requestPreprocessor = requestPreprocessor;
 			this.responseClass = responseClass;
 			this.type = type;
-			this.request = HttpRequest.newBuilder();
+			// HttpClient does not decompress on its own, RedditRequest#openBody handles it.
+			this.request = HttpRequest.newBuilder().header(ACCEPT_ENCODING, "gzip, deflate");
 		}
 		
 		public Builder<R> endpoint(Endpoint endpoint){
+			this.endpoint = endpoint;
 			uriBuilder.addPath(endpoint.getPath());
 			return this;
 		}
 		
 		public Builder<R> endpoint(Endpoint endpoint, List<String> args){
+			this.endpoint = endpoint;
 			String path = endpoint.getPath();
 			
 			Matcher matcher = null;
@@ -188,7 +542,25 @@ public class RedditRequest<R>{
 			return this;
 		}
 		
+		/**
+		 * Sets the {@link RateLimiter} lane of this request. Defaults to {@link RequestPriority#HIGH} for requests that write data, and
+		 * {@link RequestPriority#NORMAL} for everything else.
+		 */
+		public Builder<R> priority(RequestPriority priority){
+			this.priority = priority;
+			return this;
+		}
+		
+		/**
+		 * Abandons the request if it has not completed within the given time after being executed, whether it is still queued or in flight.
+		 */
+		public Builder<R> timeout(Duration timeout){
+			this.timeout = timeout;
+			return this;
+		}
+		
 		public Builder<R> post(HttpRequest.BodyPublisher body){
+			this.method = "POST";
 			this.request.POST(body);
 			return this;
 		}
@@ -200,6 +572,7 @@ public class RedditRequest<R>{
 			// Because we always want a json response and want to avoid missing this parameter
 			// We will always add it and hope it doesn't create any issues when it's not needed.
 			multipart.addPart("api_type", "json");
+			this.method = "POST";
 			this.request.POST(multipart.build())
 				.header("Content-Type", "application/x-www-form-urlencoded; charset=UTF-8")
 				.headers("Content-Length", String.valueOf(multipart.calculateLength()));
@@ -207,18 +580,25 @@ public class RedditRequest<R>{
 		}
 		
 		public Builder<R> patch(HttpRequest.BodyPublisher body){
+			this.method = "PATCH";
 			this.request.method("PATCH", body).header("Content-Type", "application/json");
 			return this;
 		}
 		
 		public Builder<R> patch(Object body){
+			this.method = "PATCH";
 			this.request.method("PATCH", HttpRequest.BodyPublishers.ofString(gson.toJson(body))).header("Content-Type", "application/json");
 			return this;
 		}
 		
 		public RedditRequest<R> build(){
-			request.uri(uriBuilder.build());
-			return new RedditRequest<>(requestFactory, request, requestPreprocessor, responseClass, type);
+			URI uri = uriBuilder.build();
+			request.uri(uri);
+			RequestPriority priority = this.priority;
+			if(priority == null){
+				priority = method.equals("GET") ? RequestPriority.NORMAL : RequestPriority.HIGH;
+			}
+			return new RedditRequest<>(requestFactory, request, requestPreprocessor, responseClass, type, uri, endpoint, method, priority, timeout);
 		}
 	}
 	
@@ -248,6 +628,18 @@ public class RedditRequest<R>{
 			return this;
 		}
 		
+		@Override
+		public ListingBuilder<R> priority(RequestPriority priority){
+			super.priority(priority);
+			return this;
+		}
+		
+		@Override
+		public ListingBuilder<R> timeout(Duration timeout){
+			super.timeout(timeout);
+			return this;
+		}
+		
 		public ListingBuilder<R> show(){
 			parameter("show", "all");
 			return this;
@@ -0,0 +1,157 @@
+/*
+ * Copyright (c) 2023, Arnah <github@arnah.ca>
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 3. Neither the name of the copyright holder nor the names of its
+ *    contributors may be used to endorse or promote products derived from
+ *    this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package ca.arnah.reddit4j.requests;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+import ca.arnah.reddit4j.requests.cache.ResponseCache;
+import lombok.extern.log4j.Log4j2;
+
+/**
+ * Lets identical <code>GET</code> requests that are queued or in flight at the same time share a single exchange.
+ * <p>
+ * The first request for a {@link ResponseCache.Key} is sent as usual, every identical request made before it completes gets a view of that
+ * same result instead of being queued. A caller cancelling its view only detaches that caller, the exchange itself is only cancelled once every
+ * caller has given up on it. The timeout of the request that was actually sent applies to everyone sharing it.
+ * <p>
+ * Every caller sharing an exchange gets the same decoded object, which is why coalescing has to be enabled with
+ * {@link ca.arnah.reddit4j.factories.RequestFactorySettings.Builder#coalesceRequests(boolean)}.
+ */
+@Log4j2
+public class RequestCoalescer{
+	
+	private final Map<ResponseCache.Key, Shared<?>> pending = new ConcurrentHashMap<>();
+	private final RequestStatistics statistics;
+	
+	public RequestCoalescer(RequestStatistics statistics){
+		this.statistics = statistics;
+	}
+	
+	/**
+	 * @param send Sends the request, only called if no identical request is pending.
+	 * @return A future completed with the shared result, cancelling it only detaches this caller.
+	 */
+	@SuppressWarnings("unchecked")
+	<R> CompletableFuture<R> join(ResponseCache.Key key, Supplier<CompletableFuture<R>> send){
+		while(true){
+			Shared<R> created = new Shared<>();
+			Shared<R> shared = (Shared<R>) pending.putIfAbsent(key, created);
+			boolean leader = shared == null;
+			if(leader){
+				shared = created;
+			}
+			CompletableFuture<R> view = shared.subscribe();
+			if(view == null){
+				// Every caller gave up on it just now, it is on its way out.
+				pending.remove(key, shared);
+				continue;
+			}
+			statistics.recordCoalesced(!leader);
+			if(leader){
+				Shared<R> started = shared;
+				started.result.whenComplete((r, throwable)->pending.remove(key, started));
+				started.start(send.get());
+			}else{
+				log.trace("Joining pending request for {}", key.uri());
+			}
+			return view;
+		}
+	}
+	
+	/**
+	 * @return The amount of distinct requests currently pending.
+	 */
+	public int getPending(){
+		return pending.size();
+	}
+	
+	private static class Shared<R>{
+		
+		private final CompletableFuture<R> result = new CompletableFuture<>();
+		/**
+		 * Guarded by this.
+		 */
+		private CompletableFuture<R> exchange;
+		private int subscribers;
+		private boolean cancelled;
+		
+		synchronized CompletableFuture<R> subscribe(){
+			if(cancelled) return null;
+			++subscribers;
+			CompletableFuture<R> view = new CompletableFuture<>();
+			// Completing the view first, by cancelling or timing out, detaches it.
+			view.whenComplete((r, throwable)->{
+				if(!result.isDone()){
+					unsubscribe();
+				}
+			});
+			result.whenComplete((r, throwable)->{
+				if(throwable != null){
+					view.completeExceptionally(throwable);
+				}else{
+					view.complete(r);
+				}
+			});
+			return view;
+		}
+		
+		private void unsubscribe(){
+			CompletableFuture<R> exchange;
+			synchronized(this){
+				if(--subscribers > 0 || cancelled) return;
+				cancelled = true;
+				exchange = this.exchange;
+			}
+			if(exchange != null){
+				exchange.cancel(true);
+			}
+			result.cancel(false);
+		}
+		
+		void start(CompletableFuture<R> exchange){
+			boolean cancelled;
+			synchronized(this){
+				this.exchange = exchange;
+				cancelled = this.cancelled;
+			}
+			if(cancelled){
+				exchange.cancel(true);
+				return;
+			}
+			exchange.whenComplete((r, throwable)->{
+				if(throwable != null){
+					result.completeExceptionally(throwable);
+				}else{
+					result.complete(r);
+				}
+			});
+		}
+	}
+}
@@ -0,0 +1,142 @@
+/*
+ * Copyright (c) 2023, Arnah <github@arnah.ca>
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 3. Neither the name of the copyright holder nor the names of its
+ *    contributors may be used to endorse or promote products derived from
+ *    this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package ca.arnah.reddit4j.requests;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Running totals for every request sent through a {@link ca.arnah.reddit4j.factories.RedditRequestFactory}.
+ */
+public class RequestStatistics{
+	
+	private final LongAdder responses = new LongAdder();
+	private final LongAdder compressedBytes = new LongAdder();
+	private final LongAdder uncompressedBytes = new LongAdder();
+	private final LongAdder retries = new LongAdder();
+	private final LongAdder retriesExhausted = new LongAdder();
+	private final LongAdder coalescable = new LongAdder();
+	private final LongAdder collapsed = new LongAdder();
+	private final LongAdder skippedParses = new LongAdder();
+	
+	void recordResponse(long compressed, long uncompressed){
+		responses.increment();
+		compressedBytes.add(compressed);
+		uncompressedBytes.add(uncompressed);
+	}
+	
+	void recordRetry(){
+		retries.increment();
+	}
+	
+	void recordRetriesExhausted(){
+		retriesExhausted.increment();
+	}
+	
+	void recordCoalesced(boolean joined){
+		coalescable.increment();
+		if(joined){
+			collapsed.increment();
+		}
+	}
+	
+	void recordSkippedParse(){
+		skippedParses.increment();
+	}
+	
+	/**
+	 * @return The amount of response bodies that have been read.
+	 */
+	public long getResponses(){
+		return responses.sum();
+	}
+	
+	/**
+	 * @return The amount of bytes received over the wire, before decompression.
+	 */
+	public long getCompressedBytes(){
+		return compressedBytes.sum();
+	}
+	
+	/**
+	 * @return The amount of bytes handed to the json decoder, after decompression.
+	 */
+	public long getUncompressedBytes(){
+		return uncompressedBytes.sum();
+	}
+	
+	/**
+	 * @return How many times smaller the bodies were over the wire, <code>1</code> if nothing has been compressed.
+	 */
+	public double getCompressionRatio(){
+		long compressed = getCompressedBytes();
+		return compressed == 0 ? 1 : (double) getUncompressedBytes() / compressed;
+	}
+	
+	/**
+	 * @return The amount of times a failed request was queued again.
+	 */
+	public long getRetries(){
+		return retries.sum();
+	}
+	
+	/**
+	 * @return The amount of requests that still failed after being retried.
+	 */
+	public long getRetriesExhausted(){
+		return retriesExhausted.sum();
+	}
+	
+	/**
+	 * @return The amount of requests that joined an identical pending request instead of being sent.
+	 */
+	public long getCollapsed(){
+		return collapsed.sum();
+	}
+	
+	/**
+	 * @return How many callers shared each exchange on average, <code>1</code> if nothing has been coalesced.
+	 */
+	public double getCollapseRatio(){
+		long total = coalescable.sum();
+		long sent = total - getCollapsed();
+		return sent == 0 ? 1 : (double) total / sent;
+	}
+	
+	/**
+	 * @return The amount of response bodies that were not decoded because they were identical to the previous body of the same request.
+	 */
+	public long getSkippedParses(){
+		return skippedParses.sum();
+	}
+	
+	@Override
+	public String toString(){
+		return "RequestStatistics{responses=%d, compressedBytes=%d, uncompressedBytes=%d, retries=%d, retriesExhausted=%d, collapsed=%d, skippedParses=%d}"
+			.formatted(getResponses(), getCompressedBytes(), getUncompressedBytes(), getRetries(), getRetriesExhausted(), getCollapsed(), getSkippedParses());
+	}
+}
@@ -0,0 +1,176 @@
+/*
+ * Copyright (c) 2023, Arnah <github@arnah.ca>
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 3. Neither the name of the copyright holder nor the names of its
+ *    contributors may be used to endorse or promote products derived from
+ *    this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package ca.arnah.reddit4j.requests;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.http.HttpHeaders;
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import ca.arnah.reddit4j.exceptions.HttpStatusCodeException;
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * Decides if, and after how long, a failed {@link RedditRequest} is queued again.
+ * <p>
+ * A 429 means Reddit turned the request away without processing it, so it is always safe to retry. Other retryable status codes and I/O
+ * errors are only retried for idempotent requests (<code>GET</code>), unless {@link Builder#retryWrites(boolean)} is enabled, since a write
+ * could have been applied before the error.
+ * <p>
+ * The delay comes from the <code>Retry-After</code> header when present, then from the rate limit headers when the budget ran out, and
+ * otherwise grows exponentially with full jitter.
+ */
+@Getter
+@ToString
+public class RetryPolicy{
+	
+	/**
+	 * Never retry, every failure is reported as is.
+	 */
+	public static final RetryPolicy NONE = new Builder().maxRetries(0).build();
+	public static final RetryPolicy DEFAULT = new Builder().build();
+	
+	private final int maxRetries;
+	private final Duration baseDelay;
+	private final Duration maxDelay;
+	private final Set<Integer> retryableStatusCodes;
+	private final boolean retryWrites;
+	
+	protected RetryPolicy(Builder builder){
+		this.maxRetries = builder.maxRetries;
+		this.baseDelay = builder.baseDelay;
+		this.maxDelay = builder.maxDelay;
+		this.retryableStatusCodes = Set.copyOf(builder.retryableStatusCodes);
+		this.retryWrites = builder.retryWrites;
+	}
+	
+	/**
+	 * @param retries How many times the request has already been retried.
+	 * @param error Why the last attempt failed.
+	 */
+	public boolean shouldRetry(RedditRequest<?> request, int retries, Throwable error){
+		if(retries >= maxRetries || request.isAbandoned()){
+			return false;
+		}
+		boolean idempotent = request.getMethod().equals("GET") || retryWrites;
+		if(error instanceof HttpStatusCodeException ex){
+			if(ex.getStatusCode() == 429) return true;
+			return idempotent && retryableStatusCodes.contains(ex.getStatusCode());
+		}
+		// Interrupted means the request was cancelled or the client is shutting down.
+		return idempotent && error instanceof IOException && !(error instanceof InterruptedIOException);
+	}
+	
+	/**
+	 * @param retries How many times the request has already been retried.
+	 * @param error Why the last attempt failed.
+	 * @return How long to wait before queueing the request again.
+	 */
+	public Duration getDelay(int retries, Throwable error){
+		if(error instanceof HttpStatusCodeException ex){
+			HttpHeaders headers = ex.getHeaders();
+			Duration retryAfter = parseRetryAfter(headers);
+			if(retryAfter != null){
+				return retryAfter;
+			}
+			var remaining = headers.firstValue("x-ratelimit-remaining");
+			var reset = headers.firstValueAsLong("x-ratelimit-reset");
+			if(reset.isPresent() && (ex.getStatusCode() == 429 || remaining.map(r->Double.parseDouble(r) < 1).orElse(false))){
+				return Duration.ofSeconds(reset.getAsLong());
+			}
+		}
+		long cap = Math.min(maxDelay.toMillis(), baseDelay.toMillis() << Math.min(retries, 30));
+		return Duration.ofMillis(ThreadLocalRandom.current().nextLong(cap + 1));
+	}
+	
+	private static Duration parseRetryAfter(HttpHeaders headers){
+		var value = headers.firstValue("Retry-After");
+		if(value.isEmpty()) return null;
+		try{
+			return Duration.ofSeconds(Long.parseLong(value.get().trim()));
+		}catch(NumberFormatException ignored){
+			// Can also be an HTTP date.
+		}
+		try{
+			Duration delay = Duration.between(ZonedDateTime.now(), ZonedDateTime.parse(value.get().trim(), DateTimeFormatter.RFC_1123_DATE_TIME));
+			return delay.isNegative() ? Duration.ZERO : delay;
+		}catch(DateTimeParseException ignored){
+			return null;
+		}
+	}
+	
+	public static class Builder{
+		
+		private int maxRetries = 3;
+		private Duration baseDelay = Duration.ofMillis(500);
+		private Duration maxDelay = Duration.ofSeconds(30);
+		private Set<Integer> retryableStatusCodes = Set.of(429, 500, 502, 503, 504);
+		private boolean retryWrites;
+		
+		public Builder maxRetries(int maxRetries){
+			this.maxRetries = maxRetries;
+			return this;
+		}
+		
+		/**
+		 * The delay before the first retry, doubled for each following retry up to {@link #maxDelay(Duration)}. The actual delay is a random
+		 * value between zero and that.
+		 */
+		public Builder baseDelay(Duration baseDelay){
+			this.baseDelay = baseDelay;
+			return this;
+		}
+		
+		public Builder maxDelay(Duration maxDelay){
+			this.maxDelay = maxDelay;
+			return this;
+		}
+		
+		public Builder retryableStatusCodes(Set<Integer> retryableStatusCodes){
+			this.retryableStatusCodes = retryableStatusCodes;
+			return this;
+		}
+		
+		/**
+		 * Also retry requests that write data after a 5xx or I/O error, which risks applying them twice.
+		 */
+		public Builder retryWrites(boolean retryWrites){
+			this.retryWrites = retryWrites;
+			return this;
+		}
+		
+		public RetryPolicy build(){
+			return new RetryPolicy(this);
+		}
+	}
+}
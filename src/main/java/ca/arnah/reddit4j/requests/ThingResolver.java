@@ -0,0 +1,190 @@
+/*
+ * Copyright (c) 2023, Arnah <github@arnah.ca>
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 3. Neither the name of the copyright holder nor the names of its
+ *    contributors may be used to endorse or promote products derived from
+ *    this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package ca.arnah.reddit4j.requests;
+
+import java.lang.reflect.Type;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import ca.arnah.reddit4j.RedditClient;
+import ca.arnah.reddit4j.factories.RedditRequestFactory;
+import ca.arnah.reddit4j.gson.adapters.ThingTypeAdapterFactory;
+import ca.arnah.reddit4j.objects.reddit.Identifiable;
+import ca.arnah.reddit4j.objects.reddit.Kind;
+import ca.arnah.reddit4j.objects.reddit.Listing;
+import ca.arnah.reddit4j.objects.reddit.Subreddit;
+import ca.arnah.reddit4j.objects.reddit.Thing;
+import com.google.gson.reflect.TypeToken;
+
+/**
+ * Looks up links, comments and subreddits by fullname, batching individual {@link #load(String)} calls into as few <code>/api/info</code>
+ * requests as possible.
+ * <p>
+ * Repeated calls for a fullname share the same result for {@link Builder#ttl(Duration)}. Things that do not exist or are not visible resolve to
+ * <code>null</code> and are remembered for {@link Builder#negativeTtl(Duration)}.
+ * <p>
+ * Results are decoded through {@link ThingTypeAdapterFactory#REGISTRY}, so a {@link Kind#LINK} resolves to a
+ * {@link ca.arnah.reddit4j.objects.reddit.Link} and so on.
+ */
+public class ThingResolver extends BatchLoader<Object>{
+	
+	public static final Set<Kind> SUPPORTED_KINDS = EnumSet.of(Kind.LINK, Kind.COMMENT, Kind.SUBREDDIT);
+	
+	private static final Type type = new TypeToken<Thing<Listing<Object>>>(){}.getType();
+	
+	private final RedditRequestFactory requestFactory;
+	
+	protected ThingResolver(Builder builder){
+		super(builder.window, builder.maxBatchSize, builder.ttl, builder.negativeTtl, builder.maxEntries);
+		this.requestFactory = builder.requestFactory;
+	}
+	
+	/**
+	 * @param fullName A fullname of a link <code>t3_</code>, comment <code>t1_</code> or subreddit <code>t5_</code>.
+	 * @return The thing, or <code>null</code> if it does not exist.
+	 */
+	@Override
+	public CompletableFuture<Object> load(String fullName){
+		requireFullName(fullName);
+		return super.load(fullName);
+	}
+	
+	/**
+	 * @return The thing cast to the given type, or <code>null</code> if it does not exist.
+	 */
+	public <T> CompletableFuture<T> load(String fullName, Class<T> type){
+		return load(fullName).thenApply(type::cast);
+	}
+	
+	@Override
+	protected CompletableFuture<Map<String, Object>> fetch(Collection<String> fullNames){
+		RedditRequest<Listing<Object>> request = requestFactory.<Listing<Object>>listing(type)
+			.limit(fullNames.size())
+			.endpoint(Endpoint.GET_INFO)
+			.parameter("id", String.join(",", fullNames))
+			.build();
+		return request.executeAsync().thenApply(response->{
+			Map<String, Object> things = new HashMap<>();
+			for(Object thing : response.getData()){
+				String fullName = getFullName(thing);
+				if(fullName != null){
+					things.put(fullName, thing);
+				}
+			}
+			return things;
+		});
+	}
+	
+	/**
+	 * @throws IllegalArgumentException If the fullname is not a kind prefix and an id, such as <code>t3_abc</code>, or is of an unsupported
+	 * kind.
+	 */
+	private static void requireFullName(String fullName){
+		int separator = fullName.indexOf('_');
+		if(separator <= 0 || separator == fullName.length() - 1){
+			throw new IllegalArgumentException("Can not resolve %s, a fullname is a kind prefix and an id such as t3_abc".formatted(fullName));
+		}
+		String prefix = fullName.substring(0, separator);
+		if(SUPPORTED_KINDS.stream().noneMatch(kind->kind.getPrefix().equals(prefix))){
+			throw new IllegalArgumentException("Can not resolve %s, only %s are supported".formatted(fullName, SUPPORTED_KINDS));
+		}
+	}
+	
+	private static String getFullName(Object thing){
+		if(thing instanceof Identifiable identifiable){
+			return identifiable.getFullName();
+		}
+		if(thing instanceof Subreddit subreddit){
+			return subreddit.getName();
+		}
+		return null;
+	}
+	
+	public static class Builder{
+		
+		private final RedditRequestFactory requestFactory;
+		private Duration window = Duration.ofMillis(10);
+		private int maxBatchSize = RedditClient.MAX_IDS_PER_REQUEST;
+		private Duration ttl = Duration.ofMinutes(10);
+		private Duration negativeTtl = Duration.ofMinutes(1);
+		private int maxEntries = 10_000;
+		
+		public Builder(RedditRequestFactory requestFactory){
+			this.requestFactory = requestFactory;
+		}
+		
+		/**
+		 * How long to wait for more calls before sending a batch, defaults to 10 milliseconds.
+		 */
+		public Builder window(Duration window){
+			this.window = window;
+			return this;
+		}
+		
+		/**
+		 * The most fullnames sent in a single request, defaults to and can not exceed 100.
+		 */
+		public Builder maxBatchSize(int maxBatchSize){
+			this.maxBatchSize = maxBatchSize;
+			return this;
+		}
+		
+		/**
+		 * How long a thing is remembered, defaults to 10 minutes.
+		 */
+		public Builder ttl(Duration ttl){
+			this.ttl = ttl;
+			return this;
+		}
+		
+		/**
+		 * How long a thing that does not exist or is not visible is remembered, defaults to 1 minute since new things can take a moment to
+		 * show up.
+		 */
+		public Builder negativeTtl(Duration negativeTtl){
+			this.negativeTtl = negativeTtl;
+			return this;
+		}
+		
+		/**
+		 * How many things to remember, defaults to 10000.
+		 */
+		public Builder maxEntries(int maxEntries){
+			this.maxEntries = maxEntries;
+			return this;
+		}
+		
+		public ThingResolver build(){
+			return new ThingResolver(this);
+		}
+	}
+}
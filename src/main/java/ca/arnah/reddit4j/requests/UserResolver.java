@@ -0,0 +1,143 @@
+/*
+ * Copyright (c) 2023, Arnah <github@arnah.ca>
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 3. Neither the name of the copyright holder nor the names of its
+ *    contributors may be used to endorse or promote products derived from
+ *    this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package ca.arnah.reddit4j.requests;
+
+import java.lang.reflect.Type;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import ca.arnah.reddit4j.RedditClient;
+import ca.arnah.reddit4j.factories.RedditRequestFactory;
+import ca.arnah.reddit4j.objects.reddit.Kind;
+import ca.arnah.reddit4j.objects.reddit.PartialUser;
+import com.google.gson.reflect.TypeToken;
+
+/**
+ * Looks up accounts by fullname <code>t2_</code>, such as {@link ca.arnah.reddit4j.objects.reddit.Link#getAuthorFullname()}, batching
+ * individual {@link #load(String)} calls into <code>/api/user_data_by_account_ids</code> requests.
+ * <p>
+ * Results are remembered for {@link Builder#ttl(Duration)}. Accounts Reddit returns nothing for, such as deleted or suspended accounts, resolve
+ * to <code>null</code> and are remembered for {@link Builder#negativeTtl(Duration)} so they are not asked for again.
+ */
+public class UserResolver extends BatchLoader<PartialUser>{
+	
+	private static final Type type = new TypeToken<Map<String, PartialUser>>(){}.getType();
+	
+	private final RedditRequestFactory requestFactory;
+	
+	protected UserResolver(Builder builder){
+		super(builder.window, builder.maxBatchSize, builder.ttl, builder.negativeTtl, builder.maxEntries);
+		this.requestFactory = builder.requestFactory;
+	}
+	
+	/**
+	 * @param fullName The fullname <code>t2_</code> of an account.
+	 * @return The account, or <code>null</code> if it does not exist or is suspended.
+	 */
+	@Override
+	public CompletableFuture<PartialUser> load(String fullName){
+		String prefix = Kind.ACCOUNT.getPrefix() + "_";
+		if(!fullName.startsWith(prefix) || fullName.length() == prefix.length()){
+			throw new IllegalArgumentException("Can not resolve %s, only account fullnames such as t2_abc are supported".formatted(fullName));
+		}
+		return super.load(fullName);
+	}
+	
+	@Override
+	protected CompletableFuture<Map<String, PartialUser>> fetch(Collection<String> fullNames){
+		RedditRequest<Map<String, PartialUser>> request = requestFactory.<Map<String, PartialUser>>request(type)
+			.endpoint(Endpoint.GET_USER_DATA_BY_ACCOUNT_IDS)
+			.parameter("ids", String.join(",", fullNames))
+			.build();
+		return request.executeAsync().thenApply(users->{
+			Map<String, PartialUser> named = new HashMap<>();
+			users.forEach((fullName, user)->named.put(fullName, user.withFullName(fullName)));
+			return named;
+		});
+	}
+	
+	public static class Builder{
+		
+		private final RedditRequestFactory requestFactory;
+		private Duration window = Duration.ofMillis(10);
+		private int maxBatchSize = RedditClient.MAX_IDS_PER_REQUEST;
+		private Duration ttl = Duration.ofMinutes(10);
+		private Duration negativeTtl = Duration.ofHours(1);
+		private int maxEntries = 10_000;
+		
+		public Builder(RedditRequestFactory requestFactory){
+			this.requestFactory = requestFactory;
+		}
+		
+		/**
+		 * How long to wait for more calls before sending a batch, defaults to 10 milliseconds.
+		 */
+		public Builder window(Duration window){
+			this.window = window;
+			return this;
+		}
+		
+		/**
+		 * The most fullnames sent in a single request, defaults to and can not exceed 100.
+		 */
+		public Builder maxBatchSize(int maxBatchSize){
+			this.maxBatchSize = maxBatchSize;
+			return this;
+		}
+		
+		/**
+		 * How long an account is remembered, defaults to 10 minutes.
+		 */
+		public Builder ttl(Duration ttl){
+			this.ttl = ttl;
+			return this;
+		}
+		
+		/**
+		 * How long an account that does not exist or is suspended is remembered, defaults to 1 hour.
+		 */
+		public Builder negativeTtl(Duration negativeTtl){
+			this.negativeTtl = negativeTtl;
+			return this;
+		}
+		
+		/**
+		 * How many accounts to remember, defaults to 10000.
+		 */
+		public Builder maxEntries(int maxEntries){
+			this.maxEntries = maxEntries;
+			return this;
+		}
+		
+		public UserResolver build(){
+			return new UserResolver(this);
+		}
+	}
+}
@@ -0,0 +1,96 @@
+/*
+ * Copyright (c) 2023, Arnah <github@arnah.ca>
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 3. Neither the name of the copyright holder nor the names of its
+ *    contributors may be used to endorse or promote products derived from
+ *    this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package ca.arnah.reddit4j.requests.cache;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Remembers a hash of the last response body received for each request, along with the object it was decoded into. When the next body hashes
+ * the same, the previous object is reused and the body is never parsed.
+ * <p>
+ * Unlike {@link ResponseCache} this still sends every request, it only saves the cost of decoding bodies that did not change, which is common
+ * when polling listings that have no validators. The hash is a 64 bit FNV-1a, fast but not collision resistant, so this should not be used
+ * where a stale object on a collision is unacceptable.
+ */
+public class ContentHashCache{
+	
+	public static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+	private static final long FNV_PRIME = 0x100000001b3L;
+	
+	/**
+	 * Guarded by this.
+	 */
+	private final LinkedHashMap<ResponseCache.Key, Entry> entries;
+	
+	/**
+	 * @param maxEntries How many requests to remember, the least recently used ones are forgotten first.
+	 */
+	public ContentHashCache(int maxEntries){
+		this.entries = new LinkedHashMap<>(16, 0.75f, true){
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<ResponseCache.Key, Entry> eldest){
+				return size() > maxEntries;
+			}
+		};
+	}
+	
+	public ContentHashCache(){
+		this(1024);
+	}
+	
+	/**
+	 * Continues a hash started with {@link #FNV_OFFSET_BASIS} over the given bytes.
+	 */
+	public static long hash(long hash, byte[] bytes, int offset, int length){
+		for(int i = offset; i < offset + length; i++){
+			hash ^= bytes[i] & 0xff;
+			hash *= FNV_PRIME;
+		}
+		return hash;
+	}
+	
+	/**
+	 * @return The object decoded from the previous body, or <code>null</code> if the previous body had a different hash.
+	 */
+	public synchronized Object get(ResponseCache.Key key, long hash){
+		Entry entry = entries.get(key);
+		return entry != null && entry.hash == hash ? entry.value : null;
+	}
+	
+	public synchronized void put(ResponseCache.Key key, long hash, Object value){
+		entries.put(key, new Entry(hash, value));
+	}
+	
+	public synchronized int getSize(){
+		return entries.size();
+	}
+	
+	private record Entry(long hash, Object value){
+	}
+}
@@ -0,0 +1,386 @@
+/*
+ * Copyright (c) 2023, Arnah <github@arnah.ca>
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 3. Neither the name of the copyright holder nor the names of its
+ *    contributors may be used to endorse or promote products derived from
+ *    this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package ca.arnah.reddit4j.requests.cache;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+import lombok.extern.log4j.Log4j2;
+
+/**
+ * Keeps raw response bodies on disk so they survive restarts, used as a second tier behind {@link ResponseCache}.
+ * <p>
+ * Records are appended to segment files that are never modified afterwards, and read through memory mapped buffers. An index from a hash of
+ * the key to the location of its latest record is rebuilt from the segments on startup. A segment that was only partially written, such as
+ * after a crash, is truncated to its last intact record.
+ * <p>
+ * Once the segments exceed {@link Builder#maxBytes(long)}, the oldest segment is compacted: if most of it is expired or overwritten its live
+ * records are copied forward, otherwise it is dropped as a whole.
+ */
+@Log4j2
+public class DiskResponseCache implements Closeable{
+	
+	private static final Pattern SEGMENT_NAME = Pattern.compile("segment-(\\d+)\\.dat");
+	/**
+	 * Record length and CRC32 of the payload.
+	 */
+	private static final int HEADER_BYTES = 8;
+	
+	private final Path directory;
+	private final long segmentBytes;
+	private final long maxBytes;
+	/**
+	 * All guarded by this.
+	 */
+	private final TreeMap<Integer, Segment> segments = new TreeMap<>();
+	private final Map<Long, Location> index = new HashMap<>();
+	private Segment active;
+	private long bytes;
+	private boolean closed;
+	
+	protected DiskResponseCache(Builder builder) throws IOException{
+		this.directory = builder.directory;
+		this.segmentBytes = builder.segmentBytes;
+		this.maxBytes = builder.maxBytes;
+		Files.createDirectories(directory);
+		load();
+	}
+	
+	private void load() throws IOException{
+		List<Integer> ids = new ArrayList<>();
+		try(Stream<Path> files = Files.list(directory)){
+			files.forEach(file->{
+				Matcher matcher = SEGMENT_NAME.matcher(file.getFileName().toString());
+				if(matcher.matches()){
+					ids.add(Integer.parseInt(matcher.group(1)));
+				}
+			});
+		}
+		ids.sort(null);
+		long now = System.currentTimeMillis();
+		for(int id : ids){
+			Segment segment = open(id);
+			scan(segment, now);
+			segments.put(id, segment);
+			bytes += segment.size;
+		}
+		active = segments.isEmpty() ? roll() : segments.lastEntry().getValue();
+		log.debug("Loaded {} cached responses from {} segments in {}", index.size(), segments.size(), directory);
+		compact();
+	}
+	
+	private Segment open(int id) throws IOException{
+		Path path = directory.resolve("segment-%d.dat".formatted(id));
+		FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+		return new Segment(id, path, channel, channel.size());
+	}
+	
+	/**
+	 * Adds every intact record of the segment to the index, and truncates anything after the last intact record.
+	 */
+	private void scan(Segment segment, long now) throws IOException{
+		ByteBuffer map = segment.map();
+		int offset = 0;
+		while(offset + HEADER_BYTES <= segment.size){
+			int length = map.getInt(offset);
+			int crc = map.getInt(offset + 4);
+			if(length <= 12 || offset + HEADER_BYTES + (long) length > segment.size) break;
+			ByteBuffer payload = map.slice(offset + HEADER_BYTES, length);
+			if(crc(payload) != crc) break;
+			int keyLength = payload.getInt(0);
+			long expiresAt = payload.getLong(4 + keyLength);
+			long hash = hash(toArray(payload.slice(4, keyLength)));
+			if(expiresAt > now){
+				index.put(hash, new Location(segment.id, offset + HEADER_BYTES, length, expiresAt));
+			}else{
+				index.remove(hash);
+			}
+			offset += HEADER_BYTES + length;
+		}
+		if(offset < segment.size){
+			log.warn("Truncating {} at {} of {} bytes, the rest is incomplete", segment.path, offset, segment.size);
+			segment.channel.truncate(offset);
+			segment.size = offset;
+			segment.map = null;
+		}
+	}
+	
+	/**
+	 * @return The cached body, or <code>null</code> if it is not cached or expired.
+	 */
+	public synchronized Cached get(ResponseCache.Key key){
+		if(closed) return null;
+		byte[] keyBytes = serialize(key);
+		long hash = hash(keyBytes);
+		Location location = index.get(hash);
+		if(location == null) return null;
+		if(location.expiresAt <= System.currentTimeMillis()){
+			index.remove(hash);
+			return null;
+		}
+		try{
+			ByteBuffer payload = segments.get(location.segment).map().slice((int) location.offset, location.length);
+			// Different keys can share a hash, only the key stored with the record is authoritative.
+			if(payload.getInt(0) != keyBytes.length || !payload.slice(4, keyBytes.length).equals(ByteBuffer.wrap(keyBytes))){
+				return null;
+			}
+			int bodyOffset = 4 + keyBytes.length + 8;
+			return new Cached(payload.slice(bodyOffset, payload.limit() - bodyOffset).asReadOnlyBuffer(), location.expiresAt);
+		}catch(IOException ex){
+			log.warn("Failed to read cached response from disk", ex);
+			index.remove(hash);
+			return null;
+		}
+	}
+	
+	/**
+	 * @param body The uncompressed response body.
+	 */
+	public void put(ResponseCache.Key key, byte[] body, Duration ttl){
+		put(key, body, 0, body.length, ttl);
+	}
+	
+	/**
+	 * @param body Holds the uncompressed response body from the given offset on.
+	 */
+	public synchronized void put(ResponseCache.Key key, byte[] body, int offset, int length, Duration ttl){
+		if(closed || ttl.isZero() || ttl.isNegative()) return;
+		byte[] keyBytes = serialize(key);
+		long expiresAt = System.currentTimeMillis() + ttl.toMillis();
+		ByteBuffer payload = ByteBuffer.allocate(4 + keyBytes.length + 8 + length);
+		payload.putInt(keyBytes.length).put(keyBytes).putLong(expiresAt).put(body, offset, length).flip();
+		try{
+			index.put(hash(keyBytes), append(payload, expiresAt));
+			if(bytes > maxBytes){
+				compact();
+			}
+		}catch(IOException ex){
+			throw new UncheckedIOException(ex);
+		}
+	}
+	
+	private Location append(ByteBuffer payload, long expiresAt) throws IOException{
+		int length = payload.remaining();
+		if(active.size > 0 && active.size + HEADER_BYTES + length > segmentBytes){
+			active = roll();
+		}
+		ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).putInt(length).putInt(crc(payload)).flip();
+		long offset = active.size;
+		long position = offset;
+		for(ByteBuffer buffer : new ByteBuffer[]{header, payload}){
+			while(buffer.hasRemaining()){
+				position += active.channel.write(buffer, position);
+			}
+		}
+		active.size = position;
+		bytes += position - offset;
+		return new Location(active.id, offset + HEADER_BYTES, length, expiresAt);
+	}
+	
+	private Segment roll() throws IOException{
+		int id = segments.isEmpty() ? 0 : segments.lastKey() + 1;
+		Segment segment = open(id);
+		segments.put(id, segment);
+		return segment;
+	}
+	
+	/**
+	 * Compacts or drops the oldest segments until the cache fits in {@link #maxBytes}, the segment being appended to is left alone.
+	 */
+	public synchronized void compact(){
+		if(closed) return;
+		long now = System.currentTimeMillis();
+		try{
+			while(bytes > maxBytes && segments.size() > 1){
+				Segment oldest = segments.firstEntry().getValue();
+				List<Map.Entry<Long, Location>> live = new ArrayList<>();
+				long liveBytes = 0;
+				for(Iterator<Map.Entry<Long, Location>> it = index.entrySet().iterator(); it.hasNext(); ){
+					Map.Entry<Long, Location> entry = it.next();
+					Location location = entry.getValue();
+					if(location.segment != oldest.id) continue;
+					if(location.expiresAt <= now){
+						it.remove();
+						continue;
+					}
+					live.add(entry);
+					liveBytes += HEADER_BYTES + location.length;
+				}
+				// Copying a mostly live segment forward barely frees anything, evict it instead.
+				boolean copy = liveBytes < oldest.size / 2;
+				for(Map.Entry<Long, Location> entry : live){
+					if(copy){
+						Location location = entry.getValue();
+						ByteBuffer payload = ByteBuffer.allocate(location.length).put(oldest.map().slice((int) location.offset, location.length)).flip();
+						entry.setValue(append(payload, location.expiresAt));
+					}else{
+						index.remove(entry.getKey());
+					}
+				}
+				log.debug("{} {} cached responses from {}", copy ? "Compacted" : "Evicted", live.size(), oldest.path);
+				segments.remove(oldest.id);
+				bytes -= oldest.size;
+				oldest.channel.close();
+				Files.deleteIfExists(oldest.path);
+			}
+		}catch(IOException ex){
+			log.warn("Failed to compact cached responses", ex);
+		}
+	}
+	
+	public synchronized int getSize(){
+		return index.size();
+	}
+	
+	/**
+	 * @return The total size of all segment files.
+	 */
+	public synchronized long getBytes(){
+		return bytes;
+	}
+	
+	@Override
+	public synchronized void close() throws IOException{
+		if(closed) return;
+		closed = true;
+		for(Segment segment : segments.values()){
+			segment.channel.close();
+		}
+		segments.clear();
+		index.clear();
+	}
+	
+	private static byte[] serialize(ResponseCache.Key key){
+		return String.join(" ", key.method(), key.uri().toString(), String.valueOf(key.identity()), key.type().getTypeName()).getBytes(StandardCharsets.UTF_8);
+	}
+	
+	/**
+	 * The index key of a serialized key, package private so tests can force collisions.
+	 */
+	long hash(byte[] keyBytes){
+		return ContentHashCache.hash(ContentHashCache.FNV_OFFSET_BASIS, keyBytes, 0, keyBytes.length);
+	}
+	
+	private static int crc(ByteBuffer payload){
+		CRC32 crc = new CRC32();
+		crc.update(payload.duplicate());
+		return (int) crc.getValue();
+	}
+	
+	private static byte[] toArray(ByteBuffer buffer){
+		byte[] bytes = new byte[buffer.remaining()];
+		buffer.duplicate().get(bytes);
+		return bytes;
+	}
+	
+	/**
+	 * A body read from disk, backed by a memory mapped segment.
+	 *
+	 * @param expiresAt When the body expires, in milliseconds since the epoch.
+	 */
+	public record Cached(ByteBuffer body, long expiresAt){
+	}
+	
+	private record Location(int segment, long offset, int length, long expiresAt){
+	}
+	
+	private static class Segment{
+		
+		private final int id;
+		private final Path path;
+		private final FileChannel channel;
+		private long size;
+		/**
+		 * Mapping of the segment, remapped once records were appended past its end.
+		 */
+		private MappedByteBuffer map;
+		
+		Segment(int id, Path path, FileChannel channel, long size){
+			this.id = id;
+			this.path = path;
+			this.channel = channel;
+			this.size = size;
+		}
+		
+		MappedByteBuffer map() throws IOException{
+			if(map == null || map.capacity() < size){
+				map = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+			}
+			return map;
+		}
+	}
+	
+	public static class Builder{
+		
+		private final Path directory;
+		private long segmentBytes = 16 * 1024 * 1024;
+		private long maxBytes = 256 * 1024 * 1024;
+		
+		public Builder(Path directory){
+			this.directory = directory;
+		}
+		
+		/**
+		 * The size at which a new segment file is started, defaults to 16MiB.
+		 */
+		public Builder segmentBytes(long segmentBytes){
+			this.segmentBytes = segmentBytes;
+			return this;
+		}
+		
+		/**
+		 * The total size of all segment files to keep, defaults to 256MiB.
+		 */
+		public Builder maxBytes(long maxBytes){
+			this.maxBytes = maxBytes;
+			return this;
+		}
+		
+		public DiskResponseCache build() throws IOException{
+			return new DiskResponseCache(this);
+		}
+	}
+}
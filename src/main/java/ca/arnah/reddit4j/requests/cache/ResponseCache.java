@@ -0,0 +1,312 @@
+/*
+ * Copyright (c) 2023, Arnah <github@arnah.ca>
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 3. Neither the name of the copyright holder nor the names of its
+ *    contributors may be used to endorse or promote products derived from
+ *    this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package ca.arnah.reddit4j.requests.cache;
+
+import java.lang.reflect.Type;
+import java.net.URI;
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import ca.arnah.reddit4j.requests.Endpoint;
+import lombok.extern.log4j.Log4j2;
+
+/**
+ * Keeps decoded responses of <code>GET</code> requests in memory, so repeated requests for the same resource are answered without going
+ * through the {@link ca.arnah.reddit4j.requests.RateLimiter}.
+ * <p>
+ * Entries expire after the time to live of their {@link Endpoint}, and the least recently used entries are evicted once the total size of the
+ * cached response bodies exceeds {@link Builder#maxBytes(long)}. A cached object is shared by every request that hits it, so it must not be
+ * modified.
+ * <p>
+ * Expired entries that came with an <code>ETag</code> or <code>Last-Modified</code> header are kept until evicted, so the next request can
+ * revalidate them with a conditional <code>GET</code> and reuse the object on a <code>304 Not Modified</code>.
+ * <p>
+ * With a {@link DiskResponseCache} the raw bodies are also written to disk, and a miss in memory is looked up there before going to the network.
+ */
+@Log4j2
+public class ResponseCache{
+	
+	/**
+	 * Rough per entry overhead counted on top of the body size, so many tiny responses cannot grow the cache without bound.
+	 */
+	private static final long ENTRY_OVERHEAD = 256;
+	
+	private final long maxBytes;
+	private final Duration defaultTtl;
+	private final Map<Endpoint, Duration> ttls;
+	private final DiskResponseCache diskCache;
+	/**
+	 * Ordered from least to most recently used. Guarded by this.
+	 */
+	private final LinkedHashMap<Key, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+	private long bytes;
+	private final LongAdder hits = new LongAdder();
+	private final LongAdder misses = new LongAdder();
+	private final LongAdder evictions = new LongAdder();
+	private final LongAdder revalidations = new LongAdder();
+	
+	protected ResponseCache(Builder builder){
+		this.maxBytes = builder.maxBytes;
+		this.defaultTtl = builder.defaultTtl;
+		this.ttls = new EnumMap<>(builder.ttls);
+		this.diskCache = builder.diskCache;
+	}
+	
+	/**
+	 * @return The tier of raw bodies behind this cache, <code>null</code> if responses are only kept in memory.
+	 */
+	public DiskResponseCache getDiskCache(){
+		return diskCache;
+	}
+	
+	/**
+	 * @param endpoint The endpoint of the request, <code>null</code> if it was built from a plain path.
+	 * @return How long a response of the given endpoint is cached, zero if it is never cached.
+	 */
+	public Duration getTtl(Endpoint endpoint){
+		if(endpoint == null) return defaultTtl;
+		return ttls.getOrDefault(endpoint, defaultTtl);
+	}
+	
+	/**
+	 * @return The cached response, or <code>null</code> if it is not cached or expired.
+	 */
+	public synchronized Object get(Key key){
+		Entry entry = entries.get(key);
+		if(entry != null && entry.isExpired(System.nanoTime())){
+			if(!entry.hasValidators()){
+				remove(key);
+			}
+			entry = null;
+		}
+		if(entry == null){
+			misses.increment();
+			return null;
+		}
+		hits.increment();
+		return entry.value;
+	}
+	
+	/**
+	 * @return The validators of an expired entry, or <code>null</code> if there is nothing to revalidate.
+	 */
+	public synchronized Validators getValidators(Key key){
+		Entry entry = entries.get(key);
+		if(entry == null || !entry.hasValidators()) return null;
+		return new Validators(entry.value, entry.etag, entry.lastModified);
+	}
+	
+	/**
+	 * @param size Size of the response body the value was decoded from, used as its weight.
+	 */
+	public void put(Key key, Object value, long size, Duration ttl){
+		put(key, value, size, ttl, null, null);
+	}
+	
+	/**
+	 * @param size Size of the response body the value was decoded from, used as its weight.
+	 * @param etag The <code>ETag</code> header of the response, if any.
+	 * @param lastModified The <code>Last-Modified</code> header of the response, if any.
+	 */
+	public synchronized void put(Key key, Object value, long size, Duration ttl, String etag, String lastModified){
+		if(ttl.isZero() || ttl.isNegative()) return;
+		long weight = size + ENTRY_OVERHEAD;
+		if(weight > maxBytes) return;
+		remove(key);
+		entries.put(key, new Entry(value, weight, System.nanoTime() + ttl.toNanos(), etag, lastModified));
+		bytes += weight;
+		evict();
+	}
+	
+	/**
+	 * Marks an entry as fresh again after the server answered <code>304 Not Modified</code>.
+	 *
+	 * @return The cached value, or <code>null</code> if the entry was evicted in the meantime.
+	 */
+	public synchronized Object revalidated(Key key, Duration ttl){
+		Entry entry = entries.get(key);
+		if(entry == null) return null;
+		revalidations.increment();
+		entries.put(key, new Entry(entry.value, entry.weight, System.nanoTime() + ttl.toNanos(), entry.etag, entry.lastModified));
+		return entry.value;
+	}
+	
+	public synchronized void invalidate(Key key){
+		remove(key);
+	}
+	
+	public synchronized void clear(){
+		entries.clear();
+		bytes = 0;
+	}
+	
+	private void remove(Key key){
+		Entry entry = entries.remove(key);
+		if(entry != null){
+			bytes -= entry.weight;
+		}
+	}
+	
+	/**
+	 * Drops expired entries first, then the least recently used ones, until the cache fits in {@link #maxBytes}.
+	 */
+	private void evict(){
+		if(bytes <= maxBytes) return;
+		long now = System.nanoTime();
+		entries.values().removeIf(entry->{
+			if(!entry.isExpired(now) || entry.hasValidators()) return false;
+			bytes -= entry.weight;
+			return true;
+		});
+		Iterator<Entry> it = entries.values().iterator();
+		while(bytes > maxBytes && it.hasNext()){
+			Entry entry = it.next();
+			it.remove();
+			bytes -= entry.weight;
+			evictions.increment();
+		}
+		log.trace("Evicted cached responses, {} bytes in {} entries remaining", bytes, entries.size());
+	}
+	
+	public long getHits(){
+		return hits.sum();
+	}
+	
+	public long getMisses(){
+		return misses.sum();
+	}
+	
+	/**
+	 * @return The amount of entries dropped to make room, not counting expired entries.
+	 */
+	public long getEvictions(){
+		return evictions.sum();
+	}
+	
+	/**
+	 * @return The amount of expired entries reused after a <code>304 Not Modified</code>.
+	 */
+	public long getRevalidations(){
+		return revalidations.sum();
+	}
+	
+	public double getHitRatio(){
+		long hits = getHits();
+		long total = hits + getMisses();
+		return total == 0 ? 0 : (double) hits / total;
+	}
+	
+	public synchronized int getSize(){
+		return entries.size();
+	}
+	
+	/**
+	 * @return The total weight of all entries, in bytes.
+	 */
+	public synchronized long getBytes(){
+		return bytes;
+	}
+	
+	@Override
+	public String toString(){
+		return "ResponseCache{size=%d, bytes=%d, hits=%d, misses=%d, evictions=%d, revalidations=%d}".formatted(getSize(), getBytes(), getHits(), getMisses(),
+			getEvictions(), getRevalidations());
+	}
+	
+	/**
+	 * Identifies a response, the identity keeps responses of different accounts apart when a cache is shared between clients.
+	 *
+	 * @param type What the response is decoded as, the same resource can be decoded into different objects.
+	 */
+	public record Key(String method, URI uri, String identity, Type type){
+	}
+	
+	/**
+	 * What is needed to revalidate an expired entry, and the value to reuse if it is still valid.
+	 */
+	public record Validators(Object value, String etag, String lastModified){
+	}
+	
+	private record Entry(Object value, long weight, long expiresAt, String etag, String lastModified){
+		
+		boolean isExpired(long now){
+			return now - expiresAt >= 0;
+		}
+		
+		boolean hasValidators(){
+			return etag != null || lastModified != null;
+		}
+	}
+	
+	public static class Builder{
+		
+		private long maxBytes = 32 * 1024 * 1024;
+		private Duration defaultTtl = Duration.ofSeconds(30);
+		private final Map<Endpoint, Duration> ttls = new EnumMap<>(Endpoint.class);
+		private DiskResponseCache diskCache;
+		
+		/**
+		 * The total size of cached response bodies to keep, defaults to 32MiB.
+		 */
+		public Builder maxBytes(long maxBytes){
+			this.maxBytes = maxBytes;
+			return this;
+		}
+		
+		/**
+		 * How long responses are cached when no time to live is set for their endpoint, defaults to 30 seconds.
+		 */
+		public Builder defaultTtl(Duration defaultTtl){
+			this.defaultTtl = defaultTtl;
+			return this;
+		}
+		
+		/**
+		 * Sets how long responses of the given endpoint are cached, {@link Duration#ZERO} to never cache them.
+		 */
+		public Builder ttl(Endpoint endpoint, Duration ttl){
+			ttls.put(endpoint, ttl);
+			return this;
+		}
+		
+		/**
+		 * Keeps response bodies on disk as well, so they survive restarts. The disk cache is not closed by this cache.
+		 */
+		public Builder diskCache(DiskResponseCache diskCache){
+			this.diskCache = diskCache;
+			return this;
+		}
+		
+		public ResponseCache build(){
+			return new ResponseCache(this);
+		}
+	}
+}
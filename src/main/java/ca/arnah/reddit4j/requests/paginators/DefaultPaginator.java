@@ -42,6 +42,16 @@ public abstract class DefaultPaginator<T> extends Paginator<T>{
 		this.endpoint = endpoint;
 	}
 	
+	protected DefaultPaginator(Builder<T> builder){
+		super(builder);
+		this.endpoint = builder.endpoint;
+	}
+	
+	@Override
+	protected PaginatorState.Builder describe(PaginatorState.Builder state){
+		return state.endpoint(endpoint.getPath());
+	}
+	
 	@Override
 	public RedditRequest.ListingBuilder<Listing<T>> createRequest(Type type){
 		RedditRequest.ListingBuilder<Listing<T>> request = redditClient.getRequestFactory().listing(type);
@@ -63,5 +73,29 @@ public abstract class DefaultPaginator<T> extends Paginator<T>{
 			this.limit = limit;
 			return this;
 		}
+		
+		@Override
+		public Builder<T> take(int total){
+			super.take(total);
+			return this;
+		}
+		
+		@Override
+		public Builder<T> checkpoint(CheckpointStore checkpointStore, String checkpointId, int interval){
+			super.checkpoint(checkpointStore, checkpointId, interval);
+			return this;
+		}
+		
+		@Override
+		public Builder<T> resume(PaginatorState state){
+			super.resume(state);
+			return this;
+		}
+		
+		@Override
+		public Builder<T> prefetch(int prefetch){
+			this.prefetch = prefetch;
+			return this;
+		}
 	}
 }
@@ -0,0 +1,94 @@
+/*
+ * Copyright (c) 2023, Arnah <github@arnah.ca>
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 3. Neither the name of the copyright holder nor the names of its
+ *    contributors may be used to endorse or promote products derived from
+ *    this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package ca.arnah.reddit4j.requests.paginators;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+
+/**
+ * Saves each checkpoint as a small JSON file in a directory.
+ * <p>
+ * A checkpoint is written to a temporary file first and then moved over the previous one, so a crash while saving leaves the previous
+ * checkpoint intact.
+ */
+public class FileCheckpointStore implements CheckpointStore{
+	
+	private static final Gson gson = new Gson();
+	
+	private final Path directory;
+	
+	public FileCheckpointStore(Path directory) throws IOException{
+		this.directory = Files.createDirectories(directory);
+	}
+	
+	private Path file(String id){
+		if(id.isEmpty() || !id.matches("[\\w.-]+") || id.startsWith(".")){
+			throw new IllegalArgumentException("Invalid checkpoint id " + id);
+		}
+		return directory.resolve(id + ".json");
+	}
+	
+	@Override
+	public void save(String id, PaginatorState state) throws IOException{
+		Path file = file(id);
+		Path temp = Files.createTempFile(directory, id, ".tmp");
+		try{
+			Files.writeString(temp, gson.toJson(state), StandardCharsets.UTF_8);
+			try{
+				Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			}catch(AtomicMoveNotSupportedException ex){
+				Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+			}
+		}finally{
+			Files.deleteIfExists(temp);
+		}
+	}
+	
+	@Override
+	public PaginatorState load(String id) throws IOException{
+		try{
+			return gson.fromJson(Files.readString(file(id), StandardCharsets.UTF_8), PaginatorState.class);
+		}catch(NoSuchFileException ex){
+			return null;
+		}catch(JsonParseException ex){
+			throw new IOException("Corrupt checkpoint " + id, ex);
+		}
+	}
+	
+	@Override
+	public void remove(String id) throws IOException{
+		Files.deleteIfExists(file(id));
+	}
+}
@@ -0,0 +1,163 @@
+/*
+ * Copyright (c) 2023, Arnah <github@arnah.ca>
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 3. Neither the name of the copyright holder nor the names of its
+ *    contributors may be used to endorse or promote products derived from
+ *    this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package ca.arnah.reddit4j.requests.paginators;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.function.Predicate;
+import ca.arnah.reddit4j.objects.reddit.Link;
+import ca.arnah.reddit4j.objects.reddit.SubredditSort;
+import ca.arnah.reddit4j.objects.reddit.TimePeriod;
+
+/**
+ * Query over the links of a subreddit listing, see {@link ListingQuery}.
+ * <p>
+ * On top of the sorting and time period, a {@link #newerThan(Instant) cutoff} is pushed down where the listing allows it:
+ * <ul>
+ *     <li>Under {@link SubredditSort#New} the links come newest first, so paging stops at the first link older than the cutoff.</li>
+ *     <li>Under {@link SubredditSort#Top} and {@link SubredditSort#Controversial} without a time period, the shortest time period covering
+ *     the cutoff is requested.</li>
+ * </ul>
+ */
+public class LinkQuery extends ListingQuery<Link>{
+	
+	private SubredditSort sorting;
+	private TimePeriod timePeriod;
+	private Instant newerThan, olderThan;
+	private Integer minScore;
+	
+	protected LinkQuery(SubredditPaginator.Builder paginator){
+		super(paginator);
+		this.sorting = paginator.sorting;
+		this.timePeriod = paginator.timePeriod;
+	}
+	
+	public LinkQuery sorting(SubredditSort sorting){
+		this.sorting = sorting;
+		return this;
+	}
+	
+	public LinkQuery timePeriod(TimePeriod timePeriod){
+		this.timePeriod = timePeriod;
+		return this;
+	}
+	
+	/**
+	 * Only returns links created at or after the given time.
+	 */
+	public LinkQuery newerThan(Instant cutoff){
+		this.newerThan = cutoff;
+		return this;
+	}
+	
+	/**
+	 * Only returns links created before the given time.
+	 */
+	public LinkQuery olderThan(Instant cutoff){
+		this.olderThan = cutoff;
+		return this;
+	}
+	
+	/**
+	 * Only returns links with at least the given score.
+	 */
+	public LinkQuery minScore(int score){
+		this.minScore = score;
+		return this;
+	}
+	
+	@Override
+	public LinkQuery where(Predicate<? super Link> filter){
+		super.where(filter);
+		return this;
+	}
+	
+	@Override
+	public LinkQuery takeWhile(Predicate<? super Link> condition){
+		super.takeWhile(condition);
+		return this;
+	}
+	
+	@Override
+	public LinkQuery limit(int limit){
+		super.limit(limit);
+		return this;
+	}
+	
+	@Override
+	protected Predicate<Link> filter(){
+		Predicate<Link> filter = super.filter();
+		if(newerThan != null && sorting != SubredditSort.New){
+			long cutoff = newerThan.getEpochSecond();
+			filter = and(filter, link->link.getCreatedUtc() >= cutoff);
+		}
+		if(olderThan != null){
+			long cutoff = olderThan.getEpochSecond();
+			filter = and(filter, link->link.getCreatedUtc() < cutoff);
+		}
+		if(minScore != null){
+			int score = minScore;
+			filter = and(filter, link->link.getScore() >= score);
+		}
+		return filter;
+	}
+	
+	@Override
+	protected Predicate<Link> condition(){
+		Predicate<Link> condition = super.condition();
+		if(newerThan != null && sorting == SubredditSort.New){
+			long cutoff = newerThan.getEpochSecond();
+			condition = and(condition, link->link.getCreatedUtc() >= cutoff);
+		}
+		return condition;
+	}
+	
+	@Override
+	protected Paginator<Link> build(Predicate<Link> filter){
+		SubredditPaginator.Builder builder = (SubredditPaginator.Builder) paginator;
+		builder.sorting(sorting);
+		if(timePeriod == null && newerThan != null && (sorting == SubredditSort.Top || sorting == SubredditSort.Controversial)){
+			builder.timePeriod(covering(Duration.between(newerThan, Instant.now())));
+		}else{
+			builder.timePeriod(timePeriod);
+		}
+		return super.build(filter);
+	}
+	
+	/**
+	 * @return The shortest time period reaching at least the given age back.
+	 */
+	static TimePeriod covering(Duration age){
+		if(age.compareTo(Duration.ofHours(1)) <= 0) return TimePeriod.Hour;
+		if(age.compareTo(Duration.ofDays(1)) <= 0) return TimePeriod.Day;
+		if(age.compareTo(Duration.ofDays(7)) <= 0) return TimePeriod.Week;
+		if(age.compareTo(Duration.ofDays(28)) <= 0) return TimePeriod.Month;
+		if(age.compareTo(Duration.ofDays(365)) <= 0) return TimePeriod.Year;
+		return TimePeriod.All;
+	}
+}
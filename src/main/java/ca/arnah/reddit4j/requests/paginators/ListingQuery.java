@@ -0,0 +1,150 @@
+/*
+ * Copyright (c) 2023, Arnah <github@arnah.ca>
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 3. Neither the name of the copyright holder nor the names of its
+ *    contributors may be used to endorse or promote products derived from
+ *    this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package ca.arnah.reddit4j.requests.paginators;
+
+import java.util.List;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+
+/**
+ * Query over the items of a paginated listing.
+ * <p>
+ * What the listing supports is pushed into the requests, the rest is evaluated on the items as they are streamed:
+ * <ul>
+ *     <li>Without a {@link #where(Predicate) filter}, the {@link #limit(int) limit} is passed on as {@link Paginator.Builder#take(int)} so no
+ *     more items are requested than returned.</li>
+ *     <li>With a filter, pages of {@link Paginator#MAX_LIMIT} items are requested, as an unknown part of every page is thrown away.</li>
+ *     <li>Paging stops at the first item that fails a {@link #takeWhile(Predicate) condition}, no further pages are requested.</li>
+ * </ul>
+ * Pages are requested as the stream is consumed, plus as many ahead as the paginator's {@link Paginator.Builder#prefetch(int) prefetch}
+ * depth.
+ */
+public class ListingQuery<T>{
+	
+	protected final Paginator.Builder<T> paginator;
+	private Predicate<T> filter;
+	private Predicate<T> condition;
+	private int limit;
+	
+	protected ListingQuery(Paginator.Builder<T> paginator){
+		this.paginator = paginator;
+	}
+	
+	public static <T> ListingQuery<T> of(Paginator.Builder<T> paginator){
+		return new ListingQuery<>(paginator);
+	}
+	
+	/**
+	 * Only returns the items matching the given filter, in addition to the previous filters.
+	 */
+	public ListingQuery<T> where(Predicate<? super T> filter){
+		this.filter = and(this.filter, filter);
+		return this;
+	}
+	
+	/**
+	 * Stops at the first item not matching the given condition. Only valid for conditions that, once false, stay false for every later item
+	 * of the listing, such as an age under the <code>new</code> sorting.
+	 */
+	public ListingQuery<T> takeWhile(Predicate<? super T> condition){
+		this.condition = and(this.condition, condition);
+		return this;
+	}
+	
+	/**
+	 * Returns at most the given amount of items.
+	 */
+	public ListingQuery<T> limit(int limit){
+		if(limit < 1){
+			throw new IllegalArgumentException("Can not limit to less than 1 item");
+		}
+		this.limit = limit;
+		return this;
+	}
+	
+	protected static <T> Predicate<T> and(Predicate<T> first, Predicate<? super T> second){
+		return first == null ? second::test : first.and(second);
+	}
+	
+	/**
+	 * @return The filter evaluated on every item, or <code>null</code> to keep every item.
+	 */
+	protected Predicate<T> filter(){
+		return filter;
+	}
+	
+	/**
+	 * @return The condition paging stops at, or <code>null</code> to page through the whole listing.
+	 */
+	protected Predicate<T> condition(){
+		return condition;
+	}
+	
+	/**
+	 * Pushes what the listing supports into the paginator and builds it.
+	 */
+	protected Paginator<T> build(Predicate<T> filter){
+		if(filter == null){
+			if(limit > 0){
+				paginator.take(limit);
+			}
+		}else{
+			paginator.limit(Paginator.MAX_LIMIT);
+		}
+		return paginator.build();
+	}
+	
+	/**
+	 * @return The matching items, paging lazily as the stream is consumed. Closing the stream cancels the pages requested ahead.
+	 */
+	public Stream<T> stream(){
+		Predicate<T> filter = filter();
+		Predicate<T> condition = condition();
+		Paginator<T> paginator = build(filter);
+		Stream<T> stream = paginator.stream(false, paginator.prefetch);
+		if(condition != null){
+			stream = stream.takeWhile(condition);
+		}
+		if(filter != null){
+			stream = stream.filter(filter);
+		}
+		if(limit > 0){
+			stream = stream.limit(limit);
+		}
+		return stream;
+	}
+	
+	/**
+	 * @return Every matching item.
+	 */
+	public List<T> list(){
+		try(Stream<T> stream = stream()){
+			return stream.toList();
+		}
+	}
+}
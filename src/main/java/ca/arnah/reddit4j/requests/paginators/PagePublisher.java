@@ -0,0 +1,173 @@
+/*
+ * Copyright (c) 2023, Arnah <github@arnah.ca>
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 3. Neither the name of the copyright holder nor the names of its
+ *    contributors may be used to endorse or promote products derived from
+ *    this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package ca.arnah.reddit4j.requests.paginators;
+
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import ca.arnah.reddit4j.objects.reddit.Listing;
+
+/**
+ * Publishes the pages of a {@link Paginator}, or the items on them, as demanded by the subscriber.
+ * <p>
+ * Every subscription starts from the first page and keeps its own position. A page is only requested once everything from the previous page
+ * was delivered and more is demanded, so at most one page is held in memory and a slow subscriber never has requests made on its behalf.
+ * Requests are sent asynchronously, no thread is blocked while waiting for a page.
+ *
+ * @param <E> What is published from each page.
+ */
+class PagePublisher<T, E> implements Flow.Publisher<E>{
+	
+	private final Paginator<T> paginator;
+	private final Function<Listing<T>, List<E>> elements;
+	
+	PagePublisher(Paginator<T> paginator, Function<Listing<T>, List<E>> elements){
+		this.paginator = paginator;
+		this.elements = elements;
+	}
+	
+	@Override
+	public void subscribe(Flow.Subscriber<? super E> subscriber){
+		PageSubscription subscription = new PageSubscription(subscriber);
+		subscriber.onSubscribe(subscription);
+		subscription.drain();
+	}
+	
+	private class PageSubscription implements Flow.Subscription{
+		
+		private final Flow.Subscriber<? super E> subscriber;
+		private final Queue<E> buffer = new ConcurrentLinkedQueue<>();
+		private final AtomicLong demand = new AtomicLong();
+		/**
+		 * Makes sure only one thread signals the subscriber at a time, see {@link #drain()}.
+		 */
+		private final AtomicInteger wip = new AtomicInteger();
+		private volatile CompletableFuture<Listing<T>> fetching;
+		private volatile String after;
+		/**
+		 * The amount of items on the pages received so far.
+		 */
+		private volatile long received;
+		private volatile boolean exhausted;
+		private volatile boolean cancelled;
+		private volatile Throwable error;
+		
+		PageSubscription(Flow.Subscriber<? super E> subscriber){
+			this.subscriber = subscriber;
+		}
+		
+		@Override
+		public void request(long n){
+			if(n <= 0){
+				error = new IllegalArgumentException("Requested %d elements, must be positive".formatted(n));
+			}else{
+				demand.getAndAccumulate(n, (current, added)->current + added < 0 ? Long.MAX_VALUE : current + added);
+			}
+			drain();
+		}
+		
+		@Override
+		public void cancel(){
+			cancelled = true;
+			CompletableFuture<Listing<T>> fetching = this.fetching;
+			if(fetching != null){
+				fetching.cancel(true);
+			}
+			buffer.clear();
+		}
+		
+		/**
+		 * Delivers as much as is buffered and demanded, and requests the next page when the buffer ran dry while more is demanded.<br>
+		 * Called from any thread, the calls are serialized so that only one thread delivers at a time.
+		 */
+		void drain(){
+			if(wip.getAndIncrement() != 0) return;
+			int missed = 1;
+			do{
+				while(!cancelled){
+					if(error != null){
+						cancelled = true;
+						buffer.clear();
+						subscriber.onError(error);
+						break;
+					}
+					if(demand.get() > 0){
+						E element = buffer.poll();
+						if(element != null){
+							if(demand.get() != Long.MAX_VALUE){
+								demand.decrementAndGet();
+							}
+							subscriber.onNext(element);
+							continue;
+						}
+					}
+					if(!buffer.isEmpty() || fetching != null) break;
+					if(exhausted){
+						cancelled = true;
+						subscriber.onComplete();
+						break;
+					}
+					if(demand.get() > 0){
+						fetchNext();
+					}
+					break;
+				}
+				missed = wip.addAndGet(-missed);
+			}while(missed != 0);
+		}
+		
+		private void fetchNext(){
+			CompletableFuture<Listing<T>> page = paginator.fetch(after, paginator.pageSize(received));
+			fetching = page;
+			page.whenComplete((listing, throwable)->{
+				if(throwable != null){
+					error = throwable;
+				}else if(listing == null){
+					exhausted = true;
+				}else{
+					List<E> items = elements.apply(listing);
+					if(items != null){
+						buffer.addAll(items);
+					}
+					if(listing.getData() != null){
+						received += listing.getData().size();
+					}
+					after = listing.getAfter();
+					exhausted = after == null || paginator.pageSize(received) == 0;
+				}
+				fetching = null;
+				drain();
+			});
+		}
+	}
+}
@@ -0,0 +1,155 @@
+/*
+ * Copyright (c) 2023, Arnah <github@arnah.ca>
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 3. Neither the name of the copyright holder nor the names of its
+ *    contributors may be used to endorse or promote products derived from
+ *    this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package ca.arnah.reddit4j.requests.paginators;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+import ca.arnah.reddit4j.objects.reddit.Listing;
+
+/**
+ * Spliterator over the items of every page of a {@link Paginator}, requesting pages in the background ahead of the consumer.
+ * <p>
+ * Splitting hands off one whole page at a time, as soon as it arrived, while this spliterator keeps the pages after it. In a parallel stream
+ * earlier pages are processed on the fork join pool while later pages are still being requested.
+ */
+class PageSpliterator<T> implements Spliterator<T>, AutoCloseable{
+	
+	private final Paginator<T> paginator;
+	private final int depth;
+	/**
+	 * The pages requested ahead, in order. Guarded by this.
+	 */
+	private final Deque<CompletableFuture<Listing<T>>> ahead = new ArrayDeque<>();
+	private boolean started;
+	/**
+	 * The last page received, the next page is requested after it when none were requested ahead.
+	 */
+	private Listing<T> last;
+	/**
+	 * The amount of items on the pages received so far.
+	 */
+	private long received;
+	/**
+	 * The amount of items requested up to the last page in {@link #ahead}, assuming every page is full.
+	 */
+	private long planned;
+	/**
+	 * The items left on the page being consumed, only used by the thread consuming this spliterator.
+	 */
+	private Spliterator<T> current;
+	
+	/**
+	 * @param depth How many pages to request ahead of the one being consumed, with 0 a page is only requested once the previous one was
+	 * consumed.
+	 */
+	PageSpliterator(Paginator<T> paginator, int depth){
+		this.paginator = paginator;
+		this.depth = Math.max(0, depth);
+	}
+	
+	/**
+	 * Waits for the next page and requests the pages after it, up to the depth.
+	 *
+	 * @return The items on the next page, or <code>null</code> once there are no pages left.
+	 */
+	private synchronized Spliterator<T> nextPage(){
+		if(ahead.isEmpty()){
+			if(started && (last == null || last.getAfter() == null)){
+				return null;
+			}
+			int size = paginator.pageSize(received);
+			if(size == 0) return null;
+			ahead.add(paginator.fetch(started ? last.getAfter() : null, size));
+			started = true;
+			planned = received + size;
+		}
+		Listing<T> page = ahead.poll().join();
+		last = page;
+		if(page == null){
+			return null;
+		}
+		if(page.getData() != null){
+			received += page.getData().size();
+		}
+		int size;
+		while(ahead.size() < depth && (size = paginator.pageSize(planned)) > 0){
+			CompletableFuture<Listing<T>> previous = ahead.isEmpty() ? CompletableFuture.completedFuture(page) : ahead.peekLast();
+			ahead.add(paginator.fetchAfter(previous, size));
+			planned += size;
+		}
+		List<T> items = page.getData();
+		return items != null ? items.spliterator() : Spliterators.<T>emptySpliterator();
+	}
+	
+	@Override
+	public boolean tryAdvance(Consumer<? super T> action){
+		while(true){
+			if(current != null && current.tryAdvance(action)){
+				return true;
+			}
+			current = nextPage();
+			if(current == null) return false;
+		}
+	}
+	
+	@Override
+	public Spliterator<T> trySplit(){
+		if(current != null && current.estimateSize() > 0){
+			Spliterator<T> page = current;
+			current = null;
+			return page;
+		}
+		return nextPage();
+	}
+	
+	@Override
+	public long estimateSize(){
+		return Long.MAX_VALUE;
+	}
+	
+	@Override
+	public int characteristics(){
+		return ORDERED | NONNULL;
+	}
+	
+	/**
+	 * Cancels the pages requested ahead, those still queued are never sent.
+	 */
+	@Override
+	public synchronized void close(){
+		CompletableFuture<Listing<T>> page;
+		while((page = ahead.poll()) != null){
+			page.cancel(true);
+		}
+	}
+}
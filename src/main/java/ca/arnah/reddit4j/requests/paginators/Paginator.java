@@ -27,18 +27,40 @@
 
 package ca.arnah.reddit4j.requests.paginators;
 
+import java.io.IOException;
 import java.lang.reflect.Type;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Deque;
 import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Flow;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 import ca.arnah.reddit4j.RedditClient;
 import ca.arnah.reddit4j.objects.reddit.Listing;
 import ca.arnah.reddit4j.requests.RedditRequest;
 import lombok.extern.log4j.Log4j2;
 
+/**
+ * Iterates the pages of a listing by following {@link Listing#getAfter()}.
+ * <p>
+ * With a {@link Builder#prefetch(int) prefetch} depth, the following pages are requested while the current one is being processed. Each page
+ * can only be requested once the previous one arrived, so they are requested one after another as soon as possible, never more than the
+ * prefetch depth ahead of the consumer. {@link #close()} cancels the pages requested ahead that were not consumed.
+ * <p>
+ * With a {@link Builder#checkpoint(CheckpointStore, String, int) checkpoint store}, the {@link #getState() state} of the paginator is saved
+ * every few pages, and a paginator built with {@link Builder#resume(PaginatorState)} continues from the page after the saved one. A page only
+ * counts as processed once the next page is asked for, or the iterator reports there is none, so a crash while processing a page hands it
+ * out again after resuming.
+ * <p>
+ * With {@link Builder#take(int)} the paginator stops after a total amount of items instead of following the listing to its end. The pages are
+ * then requested with {@link #MAX_LIMIT} items each, and the last page only with as many items as are still missing.
+ */
 @Log4j2
-public abstract class Paginator<T> implements RedditIterable<T>{
+public abstract class Paginator<T> implements RedditIterable<T>, AutoCloseable{
 	
 	public static final int DEFAULT_LIMIT = 25;
 	public static final int MAX_LIMIT = 100;
@@ -46,13 +68,68 @@ public abstract class Paginator<T> implements RedditIterable<T>{
 	protected final RedditClient redditClient;
 	protected final int limit;
 	protected final Class<T> clazz;
+	protected final int prefetch;
+	/**
+	 * The total amount of items to take, or 0 to take every item of the listing.
+	 */
+	protected final int total;
 	protected int pageNumber;
+	protected long itemsSeen;
 	protected Listing<T> current;
+	private final CheckpointStore checkpointStore;
+	private final String checkpointId;
+	private final int checkpointInterval;
+	/**
+	 * The page number last saved to the checkpoint store.
+	 */
+	private int checkpointed;
+	/**
+	 * The state to resume from, until checked against this listing on the first page.
+	 */
+	private PaginatorState resume;
+	/**
+	 * The cursor of the resumed state, until the page after it is requested.
+	 */
+	private String resumeAfter;
+	/**
+	 * The pages requested ahead of {@link #current}, in order. A page completes with <code>null</code> when there was no page left to request.
+	 */
+	private final Deque<CompletableFuture<Listing<T>>> ahead = new ArrayDeque<>();
+	/**
+	 * The amount of items requested up to the last page in {@link #ahead}, assuming every page is full.
+	 */
+	private long planned;
 	
 	protected Paginator(RedditClient redditClient, int limit, Class<T> clazz){
+		this(redditClient, limit, clazz, 0);
+	}
+	
+	protected Paginator(RedditClient redditClient, int limit, Class<T> clazz, int prefetch){
 		this.redditClient = redditClient;
 		this.limit = limit;
 		this.clazz = clazz;
+		this.prefetch = prefetch;
+		this.total = 0;
+		this.checkpointStore = null;
+		this.checkpointId = null;
+		this.checkpointInterval = 0;
+	}
+	
+	protected Paginator(Builder<T> builder){
+		this.redditClient = builder.redditClient;
+		this.limit = builder.limit;
+		this.clazz = builder.clazz;
+		this.prefetch = builder.prefetch;
+		this.total = builder.total;
+		this.checkpointStore = builder.checkpointStore;
+		this.checkpointId = builder.checkpointId;
+		this.checkpointInterval = builder.checkpointInterval;
+		if(builder.resume != null){
+			this.resume = builder.resume;
+			this.pageNumber = resume.getPageNumber();
+			this.itemsSeen = resume.getItemsSeen();
+			this.resumeAfter = resume.getAfter();
+		}
 	}
 	
 	@Override
@@ -60,7 +137,12 @@ public abstract class Paginator<T> implements RedditIterable<T>{
 		return new Iterator<>(){
 			@Override
 			public boolean hasNext(){
-				return (current == null && pageNumber == 0) || (current != null && current.getAfter() != null);
+				boolean hasNext = pageSize(itemsSeen) > 0 && (current == null ? pageNumber == 0 || resumeAfter != null : current.getAfter() != null);
+				if(!hasNext){
+					// The caller is done with the last page.
+					commit(true);
+				}
+				return hasNext;
 			}
 			
 			@Override
@@ -71,19 +153,219 @@ public abstract class Paginator<T> implements RedditIterable<T>{
 	}
 	
 	@Override
-	public Listing<T> next(){
-		try{
-			var request = createRequest().limit(limit);
-			if(current != null){
-				request.after(current.getAfter());
+	public synchronized Listing<T> next(){
+		if(resume != null){
+			PaginatorState listing = describe(PaginatorState.builder()).build();
+			if(!resume.isSameListing(listing)){
+				throw new IllegalArgumentException("Can not resume " + resume + " on another listing " + listing);
+			}
+			resume = null;
+		}
+		// The caller is done with the page returned last.
+		commit(false);
+		int size = pageSize(itemsSeen);
+		if(size == 0){
+			return null;
+		}
+		if(prefetch > 0){
+			nextPrefetched();
+		}else{
+			try{
+				var request = createRequest().limit(size);
+				String after = current != null ? current.getAfter() : resumeAfter;
+				if(after != null){
+					request.after(after);
+				}
+				resumeAfter = null;
+				++pageNumber;
+				current = request.build().execute();
+			}catch(Exception ex){
+				log.catching(ex);
+				current = null;
 			}
+		}
+		if(current != null && current.getData() != null){
+			itemsSeen += current.getData().size();
+		}
+		return current;
+	}
+	
+	/**
+	 * Saves the state after the page returned last, if it is due.
+	 *
+	 * @param force Whether to save regardless of the checkpoint interval.
+	 */
+	private synchronized void commit(boolean force){
+		if(checkpointStore == null || current == null || checkpointed == pageNumber) return;
+		if(!force && pageNumber % checkpointInterval != 0) return;
+		try{
+			checkpoint();
+		}catch(IOException ex){
+			log.catching(ex);
+		}
+	}
+	
+	private void nextPrefetched(){
+		if(ahead.isEmpty()){
+			planned = itemsSeen + pageSize(itemsSeen);
+			ahead.add(fetch(current != null ? current.getAfter() : resumeAfter, pageSize(itemsSeen)));
+			resumeAfter = null;
+		}
+		try{
 			++pageNumber;
-			current = request.build().execute();
+			current = ahead.poll().join();
 		}catch(Exception ex){
 			log.catching(ex);
 			current = null;
+			close();
+			return;
 		}
-		return current;
+		int size;
+		while(ahead.size() < prefetch && (size = pageSize(planned)) > 0){
+			CompletableFuture<Listing<T>> previous = ahead.isEmpty() ? CompletableFuture.completedFuture(current) : ahead.peekLast();
+			ahead.add(fetchAfter(previous, size));
+			planned += size;
+		}
+	}
+	
+	/**
+	 * @param taken The amount of items already taken, or requested ahead.
+	 * @return The amount of items to request on the next page, 0 once the {@link Builder#take(int) total} was taken.
+	 */
+	int pageSize(long taken){
+		if(total <= 0){
+			return limit;
+		}
+		return (int) Math.max(0, Math.min(MAX_LIMIT, total - taken));
+	}
+	
+	/**
+	 * @return The position of this paginator after the last page returned by {@link #next()}.
+	 */
+	public synchronized PaginatorState getState(){
+		return describe(PaginatorState.builder())
+			.after(current != null ? current.getAfter() : resumeAfter)
+			.pageNumber(pageNumber)
+			.itemsSeen(itemsSeen)
+			.build();
+	}
+	
+	/**
+	 * Describes the listing this paginator walks, the description must match for a state to be resumed.
+	 */
+	protected PaginatorState.Builder describe(PaginatorState.Builder state){
+		return state.endpoint(getClass().getName());
+	}
+	
+	/**
+	 * Saves the current {@link #getState() state} to the checkpoint store right away, marking the page returned last as processed.
+	 *
+	 * @throws IllegalStateException If this paginator has no checkpoint store.
+	 */
+	public synchronized void checkpoint() throws IOException{
+		if(checkpointStore == null){
+			throw new IllegalStateException("No checkpoint store set");
+		}
+		checkpointStore.save(checkpointId, getState());
+		checkpointed = pageNumber;
+	}
+	
+	/**
+	 * Requests the page following the given fullname, or the first page for <code>null</code>.
+	 */
+	CompletableFuture<Listing<T>> fetch(String after, int size){
+		var request = createRequest().limit(size);
+		if(after != null){
+			request.after(after);
+		}
+		return request.build().executeAsync();
+	}
+	
+	/**
+	 * Requests the page following the given one as soon as it arrives. Cancelling the returned future cancels that request as well.
+	 */
+	CompletableFuture<Listing<T>> fetchAfter(CompletableFuture<Listing<T>> previous, int size){
+		CompletableFuture<Listing<T>> page = new CompletableFuture<>();
+		previous.whenComplete((listing, throwable)->{
+			if(page.isDone()) return;
+			if(throwable != null){
+				page.completeExceptionally(throwable);
+				return;
+			}
+			if(listing == null || listing.getAfter() == null){
+				page.complete(null);
+				return;
+			}
+			CompletableFuture<Listing<T>> request = fetch(listing.getAfter(), size);
+			page.whenComplete((r, t)->{
+				if(page.isCancelled()){
+					request.cancel(true);
+				}
+			});
+			request.whenComplete((result, t)->{
+				if(t != null){
+					page.completeExceptionally(t);
+				}else{
+					page.complete(result);
+				}
+			});
+		});
+		return page;
+	}
+	
+	/**
+	 * Cancels the pages requested ahead that were not consumed yet, those still queued are never sent.
+	 */
+	@Override
+	public synchronized void close(){
+		CompletableFuture<Listing<T>> page;
+		while((page = ahead.poll()) != null){
+			page.cancel(true);
+		}
+	}
+	
+	/**
+	 * @return A publisher of the pages, each subscriber starts from the first page and pages are only requested as the subscriber demands them.
+	 */
+	public Flow.Publisher<Listing<T>> pages(){
+		return new PagePublisher<>(this, List::of);
+	}
+	
+	/**
+	 * @return A publisher of the items on every page, each subscriber starts from the first page and pages are only requested as the subscriber
+	 * demands more items than were already received.
+	 */
+	public Flow.Publisher<T> items(){
+		return new PagePublisher<>(this, Listing::getData);
+	}
+	
+	/**
+	 * @return A sequential stream of the items on every page, starting from the first page. Pages are requested ahead in the background, at
+	 * least one and up to the {@link Builder#prefetch(int) prefetch} depth. Closing the stream cancels the pages requested ahead.
+	 */
+	public Stream<T> stream(){
+		return stream(false);
+	}
+	
+	/**
+	 * @return A parallel stream of the items on every page, starting from the first page. Each page is handed to the fork join pool as soon as
+	 * it arrives, while the following pages are requested in the background.
+	 * @see #stream()
+	 */
+	public Stream<T> parallelStream(){
+		return stream(true);
+	}
+	
+	private Stream<T> stream(boolean parallel){
+		return stream(parallel, Math.max(1, prefetch));
+	}
+	
+	/**
+	 * @param depth How many pages to request ahead of the one being consumed.
+	 */
+	Stream<T> stream(boolean parallel, int depth){
+		PageSpliterator<T> spliterator = new PageSpliterator<>(this, depth);
+		return StreamSupport.stream(spliterator, parallel).onClose(spliterator::close);
 	}
 	
 	@Override
@@ -117,6 +399,18 @@ public abstract class Paginator<T> implements RedditIterable<T>{
 		
 		protected int limit = DEFAULT_LIMIT;
 		
+		protected int prefetch;
+		
+		protected int total;
+		
+		protected CheckpointStore checkpointStore;
+		
+		protected String checkpointId;
+		
+		protected int checkpointInterval;
+		
+		protected PaginatorState resume;
+		
 		// sorting, time period
 		public Builder(RedditClient redditClient, Class<T> clazz){
 			this.redditClient = redditClient;
@@ -128,6 +422,49 @@ public abstract class Paginator<T> implements RedditIterable<T>{
 			return this;
 		}
 		
+		/**
+		 * Requests up to the given amount of pages ahead of the one being processed, defaults to 0.
+		 */
+		public Builder<T> prefetch(int prefetch){
+			this.prefetch = prefetch;
+			return this;
+		}
+		
+		/**
+		 * Stops after the given total amount of items, requesting pages of {@link #MAX_LIMIT} items and only as many as are still missing on
+		 * the last page. Replaces the {@link #limit(int) limit} as page size.
+		 */
+		public Builder<T> take(int total){
+			if(total < 1){
+				throw new IllegalArgumentException("Can not take less than 1 item");
+			}
+			this.total = total;
+			return this;
+		}
+		
+		/**
+		 * Saves the state of the paginator under the given id every given amount of pages, and once the last page was processed. A page is
+		 * considered processed when the next page is asked for, or when the iterator reports there is none.
+		 */
+		public Builder<T> checkpoint(CheckpointStore checkpointStore, String checkpointId, int interval){
+			if(interval < 1){
+				throw new IllegalArgumentException("Can not checkpoint every " + interval + " pages");
+			}
+			this.checkpointStore = checkpointStore;
+			this.checkpointId = checkpointId;
+			this.checkpointInterval = interval;
+			return this;
+		}
+		
+		/**
+		 * Continues from the page after the given state, which must have been taken from the same listing. Does nothing for <code>null</code>,
+		 * so the result of {@link CheckpointStore#load(String)} can be passed as is.
+		 */
+		public Builder<T> resume(PaginatorState state){
+			this.resume = state;
+			return this;
+		}
+		
 		public abstract Paginator<T> build();
 	}
 }
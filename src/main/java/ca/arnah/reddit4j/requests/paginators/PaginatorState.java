@@ -0,0 +1,129 @@
+/*
+ * Copyright (c) 2023, Arnah <github@arnah.ca>
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 3. Neither the name of the copyright holder nor the names of its
+ *    contributors may be used to endorse or promote products derived from
+ *    this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package ca.arnah.reddit4j.requests.paginators;
+
+import java.io.Serializable;
+import java.util.Objects;
+import ca.arnah.reddit4j.objects.reddit.TimePeriod;
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * Position of a {@link Paginator} in its listing, enough to resume the listing from the next page with
+ * {@link Paginator.Builder#resume(PaginatorState)}.
+ * <p>
+ * The endpoint, sorting and time period describe the listing, a state can only be resumed by a paginator over the same listing.
+ */
+@Getter
+@ToString
+public class PaginatorState implements Serializable{
+	
+	private static final long serialVersionUID = 1L;
+	
+	private final String endpoint;
+	/**
+	 * The sorting or filter of the listing, if any.
+	 */
+	private final String sorting;
+	private final TimePeriod timePeriod;
+	/**
+	 * Fullname of the last item consumed, <code>null</code> once the listing has no pages left.
+	 */
+	private final String after;
+	private final int pageNumber;
+	private final long itemsSeen;
+	
+	protected PaginatorState(Builder builder){
+		this.endpoint = builder.endpoint;
+		this.sorting = builder.sorting;
+		this.timePeriod = builder.timePeriod;
+		this.after = builder.after;
+		this.pageNumber = builder.pageNumber;
+		this.itemsSeen = builder.itemsSeen;
+	}
+	
+	/**
+	 * @return Whether this state was taken from the same listing as the given one.
+	 */
+	public boolean isSameListing(PaginatorState other){
+		return Objects.equals(endpoint, other.endpoint) && Objects.equals(sorting, other.sorting) && timePeriod == other.timePeriod;
+	}
+	
+	/**
+	 * @return Whether the listing had pages left when this state was taken.
+	 */
+	public boolean hasNext(){
+		return pageNumber == 0 || after != null;
+	}
+	
+	public static Builder builder(){
+		return new Builder();
+	}
+	
+	public static class Builder{
+		
+		private String endpoint, sorting, after;
+		private TimePeriod timePeriod;
+		private int pageNumber;
+		private long itemsSeen;
+		
+		public Builder endpoint(String endpoint){
+			this.endpoint = endpoint;
+			return this;
+		}
+		
+		public Builder sorting(String sorting){
+			this.sorting = sorting;
+			return this;
+		}
+		
+		public Builder timePeriod(TimePeriod timePeriod){
+			this.timePeriod = timePeriod;
+			return this;
+		}
+		
+		public Builder after(String after){
+			this.after = after;
+			return this;
+		}
+		
+		public Builder pageNumber(int pageNumber){
+			this.pageNumber = pageNumber;
+			return this;
+		}
+		
+		public Builder itemsSeen(long itemsSeen){
+			this.itemsSeen = itemsSeen;
+			return this;
+		}
+		
+		public PaginatorState build(){
+			return new PaginatorState(this);
+		}
+	}
+}
@@ -0,0 +1,319 @@
+/*
+ * Copyright (c) 2023, Arnah <github@arnah.ca>
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 3. Neither the name of the copyright holder nor the names of its
+ *    contributors may be used to endorse or promote products derived from
+ *    this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package ca.arnah.reddit4j.requests.paginators;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.SubmissionPublisher;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import ca.arnah.reddit4j.RedditClient;
+import ca.arnah.reddit4j.objects.reddit.Link;
+import ca.arnah.reddit4j.objects.reddit.Listing;
+import ca.arnah.reddit4j.objects.reddit.SubredditSort;
+import lombok.Getter;
+import lombok.extern.log4j.Log4j2;
+
+/**
+ * Polls the <code>new</code> listing of a subreddit and publishes every link not seen before, oldest first.
+ * <p>
+ * Each poll pages through the listing only until it reaches a link that was already seen. The fullnames of the most recent links are kept
+ * in a seen set of fixed size to tell new links apart.
+ * <p>
+ * The interval between polls follows the rate links are posted at, as an exponentially weighted moving average over the polls. The interval
+ * is chosen so that a poll finds about {@link Builder#linksPerPoll(int)} new links, within the minimum and maximum interval. A quiet subreddit
+ * is polled rarely, and a busy one often enough that a single page holds everything new.
+ * <p>
+ * Polling starts with the first subscriber, and stops when the stream is closed or the request factory shuts down. A subscriber that falls
+ * behind by more than its buffer holds up the next poll until it catches up.
+ */
+@Log4j2
+public class SubmissionStream implements Flow.Publisher<Link>, AutoCloseable{
+	
+	private final RedditClient redditClient;
+	private final String subreddit;
+	private final Duration minInterval, maxInterval;
+	private final int linksPerPoll;
+	private final int maxPages;
+	private final double smoothing;
+	private final boolean skipExisting;
+	/**
+	 * Fullnames of the most recently seen links, only used by the polling thread.
+	 */
+	private final Set<String> seen;
+	private final SubmissionPublisher<Link> publisher = new SubmissionPublisher<>();
+	private final AtomicBoolean started = new AtomicBoolean();
+	private final ScheduledExecutorService poller;
+	/**
+	 * Registered with the request factory until the stream is closed, kept so the same instance can be removed again.
+	 */
+	private final Runnable shutdownHook = this::close;
+	/**
+	 * When the last successful poll happened, in {@link System#nanoTime()}.
+	 */
+	private long lastPoll;
+	private boolean firstPoll = true;
+	/**
+	 * The average amount of links posted per second, negative until the first estimate.
+	 */
+	@Getter
+	private volatile double postRate = -1;
+	@Getter
+	private volatile Duration interval;
+	
+	protected SubmissionStream(Builder builder){
+		this.redditClient = builder.redditClient;
+		this.subreddit = builder.subreddit;
+		this.minInterval = builder.minInterval;
+		this.maxInterval = builder.maxInterval;
+		this.interval = builder.minInterval;
+		this.linksPerPoll = builder.linksPerPoll;
+		this.maxPages = builder.maxPages;
+		this.smoothing = builder.smoothing;
+		this.skipExisting = builder.skipExisting;
+		int capacity = builder.seenCapacity;
+		this.seen = Collections.newSetFromMap(new LinkedHashMap<>(){
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<String, Boolean> eldest){
+				return size() > capacity;
+			}
+		});
+		ThreadFactory threadFactory = redditClient.getRequestFactory().getRateLimiter().getExecutionMode().threadFactory("SubmissionStream");
+		this.poller = Executors.newSingleThreadScheduledExecutor(r->{
+			Thread thread = threadFactory.newThread(r);
+			thread.setDaemon(true);
+			return thread;
+		});
+		redditClient.getRequestFactory().onShutdown(shutdownHook);
+	}
+	
+	@Override
+	public void subscribe(Flow.Subscriber<? super Link> subscriber){
+		publisher.subscribe(subscriber);
+		start();
+	}
+	
+	/**
+	 * Hands every new link to the given consumer, one at a time.
+	 *
+	 * @return Completes once the stream is closed.
+	 */
+	public CompletableFuture<Void> consume(Consumer<? super Link> consumer){
+		CompletableFuture<Void> consuming = publisher.consume(consumer);
+		start();
+		return consuming;
+	}
+	
+	private void start(){
+		if(started.compareAndSet(false, true)){
+			poller.execute(this::pollAndReschedule);
+		}
+	}
+	
+	private void pollAndReschedule(){
+		try{
+			poll();
+		}catch(Exception ex){
+			log.catching(ex);
+		}
+		if(!poller.isShutdown()){
+			poller.schedule(this::pollAndReschedule, interval.toMillis(), TimeUnit.MILLISECONDS);
+		}
+	}
+	
+	/**
+	 * Polls once right away and publishes the new links. With {@link Builder#skipExisting(boolean)} the links found on the first poll are
+	 * only marked as seen.
+	 * <p>
+	 * When a page fails to load, the links found before it are still published but the post rate is left as is, since how many links were
+	 * posted is unknown. The next successful poll measures the rate over the time since the last successful one.
+	 *
+	 * @return The new links, oldest first.
+	 */
+	public synchronized List<Link> poll(){
+		List<Link> found = new ArrayList<>();
+		boolean reachedSeen = false, failed = false;
+		int pages = 0;
+		var paginator = new SubredditPaginator.Builder(redditClient, subreddit).sorting(SubredditSort.New).limit(Paginator.MAX_LIMIT).build();
+		while(!reachedSeen && pages++ < maxPages){
+			Listing<Link> page = paginator.next();
+			if(page == null){
+				// The paginator already logged why.
+				failed = true;
+				break;
+			}
+			if(page.getData() == null) break;
+			for(Link link : page.getData()){
+				if(seen.contains(link.getFullName())){
+					reachedSeen = true;
+					break;
+				}
+				found.add(link);
+			}
+			if(firstPoll || page.getAfter() == null) break;
+		}
+		if(failed && firstPoll){
+			// Nothing is known about the links posted before the stream started yet, try again on the next poll.
+			return List.of();
+		}
+		if(!reachedSeen && !firstPoll && pages > maxPages){
+			log.warn("r/{} had more than {} pages of new links since the last poll, some may have been missed", subreddit, maxPages);
+		}
+		Collections.reverse(found);
+		for(Link link : found){
+			seen.add(link.getFullName());
+		}
+		if(!failed){
+			long now = System.nanoTime();
+			if(!firstPoll){
+				adjustInterval(found.size(), now - lastPoll);
+			}
+			lastPoll = now;
+		}
+		boolean deliver = !firstPoll || !skipExisting;
+		firstPoll = false;
+		if(!deliver){
+			return List.of();
+		}
+		for(Link link : found){
+			publisher.submit(link);
+		}
+		return found;
+	}
+	
+	private void adjustInterval(int links, long elapsedNanos){
+		if(elapsedNanos <= 0) return;
+		double observed = links / (elapsedNanos / 1e9);
+		double rate = postRate < 0 ? observed : smoothing * observed + (1 - smoothing) * postRate;
+		postRate = rate;
+		if(rate <= 0){
+			interval = maxInterval;
+			return;
+		}
+		long millis = (long) (linksPerPoll / rate * 1000);
+		interval = Duration.ofMillis(Math.max(minInterval.toMillis(), Math.min(maxInterval.toMillis(), millis)));
+	}
+	
+	/**
+	 * Stops polling and completes the subscribers.
+	 */
+	@Override
+	public void close(){
+		redditClient.getRequestFactory().removeShutdownHook(shutdownHook);
+		poller.shutdownNow();
+		publisher.close();
+	}
+	
+	public static class Builder{
+		
+		private final RedditClient redditClient;
+		private final String subreddit;
+		private Duration minInterval = Duration.ofSeconds(5), maxInterval = Duration.ofMinutes(5);
+		private int linksPerPoll = Paginator.DEFAULT_LIMIT;
+		private int maxPages = 5;
+		private int seenCapacity = 1000;
+		private double smoothing = 0.3;
+		private boolean skipExisting = true;
+		
+		public Builder(RedditClient redditClient, String subreddit){
+			this.redditClient = redditClient;
+			this.subreddit = subreddit;
+		}
+		
+		/**
+		 * Bounds of the interval between polls, defaults to 5 seconds and 5 minutes.
+		 */
+		public Builder interval(Duration minInterval, Duration maxInterval){
+			if(minInterval.compareTo(maxInterval) > 0){
+				throw new IllegalArgumentException("Minimum interval %s is above the maximum %s".formatted(minInterval, maxInterval));
+			}
+			this.minInterval = minInterval;
+			this.maxInterval = maxInterval;
+			return this;
+		}
+		
+		/**
+		 * How many new links a poll should find on average, defaults to {@link Paginator#DEFAULT_LIMIT}.
+		 */
+		public Builder linksPerPoll(int linksPerPoll){
+			this.linksPerPoll = linksPerPoll;
+			return this;
+		}
+		
+		/**
+		 * How many pages a poll requests at most before giving up on reaching a seen link, defaults to 5.
+		 */
+		public Builder maxPages(int maxPages){
+			this.maxPages = maxPages;
+			return this;
+		}
+		
+		/**
+		 * How many fullnames are remembered to detect seen links, defaults to 1000.
+		 */
+		public Builder seenCapacity(int seenCapacity){
+			this.seenCapacity = seenCapacity;
+			return this;
+		}
+		
+		/**
+		 * Weight of the latest poll in the average post rate, between 0 and 1, defaults to 0.3.
+		 */
+		public Builder smoothing(double smoothing){
+			if(smoothing <= 0 || smoothing > 1){
+				throw new IllegalArgumentException("Smoothing must be in (0, 1], was " + smoothing);
+			}
+			this.smoothing = smoothing;
+			return this;
+		}
+		
+		/**
+		 * Whether the links already posted before the first poll are skipped, defaults to true. Otherwise the first page of the listing is
+		 * published on the first poll.
+		 */
+		public Builder skipExisting(boolean skipExisting){
+			this.skipExisting = skipExisting;
+			return this;
+		}
+		
+		public SubmissionStream build(){
+			return new SubmissionStream(this);
+		}
+	}
+}
@@ -45,12 +45,12 @@ public class SubredditAboutPaginator extends Paginator<NestedIdentifiable>{
 	private final String subreddit, location;
 	private final AboutOnly only;
 	
-	protected SubredditAboutPaginator(RedditClient redditClient, Endpoint endpoint, String subreddit, String location, int limit, AboutOnly only, Class<NestedIdentifiable> clazz){
-		super(redditClient, limit, clazz);
-		this.endpoint = endpoint;
-		this.subreddit = subreddit;
-		this.location = location;
-		this.only = only;
+	protected SubredditAboutPaginator(Builder builder){
+		super(builder);
+		this.endpoint = builder.endpoint;
+		this.subreddit = builder.subreddit;
+		this.location = builder.location;
+		this.only = builder.only;
 	}
 	
 	@Override
@@ -58,6 +58,12 @@ public class SubredditAboutPaginator extends Paginator<NestedIdentifiable>{
 		return createRequest(type);
 	}
 	
+	@Override
+	protected PaginatorState.Builder describe(PaginatorState.Builder state){
+		String path = endpoint.getPath().replace("{subreddit}", subreddit).replace("{location}", location);
+		return state.endpoint(path).sorting(only != null ? only.getValue() : null);
+	}
+	
 	@Override
 	public RedditRequest.ListingBuilder<Listing<NestedIdentifiable>> createRequest(Type type){
 		RedditRequest.ListingBuilder<Listing<NestedIdentifiable>> request = redditClient.getRequestFactory().listing(type);
@@ -85,14 +91,45 @@ public class SubredditAboutPaginator extends Paginator<NestedIdentifiable>{
 			return this;
 		}
 		
+		@Override
+		public SubredditAboutPaginator.Builder take(int total){
+			super.take(total);
+			return this;
+		}
+		
+		@Override
+		public SubredditAboutPaginator.Builder checkpoint(CheckpointStore checkpointStore, String checkpointId, int interval){
+			super.checkpoint(checkpointStore, checkpointId, interval);
+			return this;
+		}
+		
+		@Override
+		public SubredditAboutPaginator.Builder resume(PaginatorState state){
+			super.resume(state);
+			return this;
+		}
+		
+		@Override
+		public SubredditAboutPaginator.Builder prefetch(int prefetch){
+			this.prefetch = prefetch;
+			return this;
+		}
+		
 		public SubredditAboutPaginator.Builder only(AboutOnly only){
 			this.only = only;
 			return this;
 		}
 		
+		/**
+		 * @return A query over the items of this listing, see {@link ListingQuery}.
+		 */
+		public ListingQuery<NestedIdentifiable> query(){
+			return ListingQuery.of(this);
+		}
+		
 		@Override
 		public SubredditAboutPaginator build(){
-			return new SubredditAboutPaginator(redditClient, endpoint, subreddit, location, limit, only, clazz);
+			return new SubredditAboutPaginator(this);
 		}
 	}
 }
@@ -44,11 +44,11 @@ public class SubredditPaginator extends Paginator<Link>{
 	private final SubredditSort sorting;
 	private final TimePeriod timePeriod;
 	
-	protected SubredditPaginator(RedditClient redditClient, String subreddit, SubredditSort sorting, TimePeriod timePeriod, int limit, Class<Link> clazz){
-		super(redditClient, limit, clazz);
-		this.subreddit = subreddit;
-		this.sorting = sorting;
-		this.timePeriod = timePeriod;
+	protected SubredditPaginator(Builder builder){
+		super(builder);
+		this.subreddit = builder.subreddit;
+		this.sorting = builder.sorting;
+		this.timePeriod = builder.timePeriod;
 	}
 	
 	@Override
@@ -56,8 +56,7 @@ public class SubredditPaginator extends Paginator<Link>{
 		return createRequest(type);
 	}
 	
-	@Override
-	public RedditRequest.ListingBuilder<Listing<Link>> createRequest(Type type){
+	private String path(){
 		String endpoint = "";
 		if(subreddit != null && !subreddit.isEmpty()){
 			endpoint += "/r/" + subreddit;
@@ -65,8 +64,18 @@ public class SubredditPaginator extends Paginator<Link>{
 		if(sorting != null){
 			endpoint += "/" + sorting;
 		}
+		return endpoint;
+	}
+	
+	@Override
+	protected PaginatorState.Builder describe(PaginatorState.Builder state){
+		return state.endpoint(path()).sorting(sorting != null ? sorting.toString() : null).timePeriod(timePeriod);
+	}
+	
+	@Override
+	public RedditRequest.ListingBuilder<Listing<Link>> createRequest(Type type){
 		RedditRequest.ListingBuilder<Listing<Link>> request = redditClient.getRequestFactory().listing(type);
-		request.path(endpoint);
+		request.path(path());
 		if(timePeriod != null){ // only Top and Controversial
 			request.parameter("t", timePeriod.toString());
 		}
@@ -76,8 +85,8 @@ public class SubredditPaginator extends Paginator<Link>{
 	public static class Builder extends Paginator.Builder<Link>{
 		
 		private final String subreddit;
-		private SubredditSort sorting;
-		private TimePeriod timePeriod;
+		protected SubredditSort sorting;
+		protected TimePeriod timePeriod;
 		
 		public Builder(RedditClient redditClient, String subreddit){
 			super(redditClient, Link.class);
@@ -90,6 +99,30 @@ public class SubredditPaginator extends Paginator<Link>{
 			return this;
 		}
 		
+		@Override
+		public Builder take(int total){
+			super.take(total);
+			return this;
+		}
+		
+		@Override
+		public Builder checkpoint(CheckpointStore checkpointStore, String checkpointId, int interval){
+			super.checkpoint(checkpointStore, checkpointId, interval);
+			return this;
+		}
+		
+		@Override
+		public Builder resume(PaginatorState state){
+			super.resume(state);
+			return this;
+		}
+		
+		@Override
+		public Builder prefetch(int prefetch){
+			this.prefetch = prefetch;
+			return this;
+		}
+		
 		public Builder sorting(SubredditSort sorting){
 			this.sorting = sorting;
 			return this;
@@ -100,9 +133,16 @@ public class SubredditPaginator extends Paginator<Link>{
 			return this;
 		}
 		
+		/**
+		 * @return A query over the items of this listing, see {@link LinkQuery}.
+		 */
+		public LinkQuery query(){
+			return new LinkQuery(this);
+		}
+		
 		@Override
 		public SubredditPaginator build(){
-			return new SubredditPaginator(redditClient, subreddit, sorting, timePeriod, limit, clazz);
+			return new SubredditPaginator(this);
 		}
 	}
 }
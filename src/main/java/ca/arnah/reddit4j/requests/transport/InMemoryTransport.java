@@ -0,0 +1,183 @@
+/*
+ * Copyright (c) 2023, Arnah <github@arnah.ca>
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 3. Neither the name of the copyright holder nor the names of its
+ *    contributors may be used to endorse or promote products derived from
+ *    this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package ca.arnah.reddit4j.requests.transport;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpHeaders;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import javax.net.ssl.SSLSession;
+
+/**
+ * A {@link RedditTransport} that never touches the network, answering requests with preconfigured responses instead.<br>
+ * Useful for tests and for benchmarking everything above the transport.
+ * <br>
+ * Requests without a matching response are answered with a 404.
+ */
+public class InMemoryTransport implements RedditTransport{
+	
+	private final List<Route> routes = new CopyOnWriteArrayList<>();
+	private final List<HttpRequest> requests = new CopyOnWriteArrayList<>();
+	
+	/**
+	 * Answer every request matching the predicate with the response created by the handler. Routes are checked in the order they were added.
+	 */
+	public InMemoryTransport respond(Predicate<HttpRequest> matcher, Function<HttpRequest, Response> handler){
+		routes.add(new Route(matcher, handler));
+		return this;
+	}
+	
+	/**
+	 * Answer every request to the given path with the same response. Repeated slashes in the requested path are ignored.
+	 */
+	public InMemoryTransport respond(String path, Response response){
+		return respond(request->request.uri().getPath().replaceAll("/{2,}", "/").equals(path), request->response);
+	}
+	
+	/**
+	 * Answer every request to the given path with the given status code and json body.
+	 */
+	public InMemoryTransport respond(String path, int statusCode, String body){
+		return respond(path, new Response(statusCode, body));
+	}
+	
+	/**
+	 * @return Every request that has been sent through this transport, in order.
+	 */
+	public List<HttpRequest> getRequests(){
+		return Collections.unmodifiableList(requests);
+	}
+	
+	@Override
+	public HttpResponse<InputStream> send(HttpRequest request){
+		requests.add(request);
+		for(Route route : routes){
+			if(route.matcher().test(request)){
+				return new InMemoryResponse(request, route.handler().apply(request));
+			}
+		}
+		return new InMemoryResponse(request, new Response(404, "{\"message\": \"Not Found\", \"error\": 404}"));
+	}
+	
+	private record Route(Predicate<HttpRequest> matcher, Function<HttpRequest, Response> handler){}
+	
+	public static class Response{
+		
+		private final int statusCode;
+		private final Map<String, List<String>> headers = new LinkedHashMap<>();
+		private final byte[] body;
+		
+		public Response(int statusCode, byte[] body){
+			this.statusCode = statusCode;
+			this.body = body;
+		}
+		
+		public Response(int statusCode, String body){
+			this(statusCode, body.getBytes(StandardCharsets.UTF_8));
+		}
+		
+		public Response header(String name, String value){
+			headers.computeIfAbsent(name, k->new ArrayList<>()).add(value);
+			return this;
+		}
+		
+		public int getStatusCode(){
+			return statusCode;
+		}
+		
+		public byte[] getBody(){
+			return body;
+		}
+	}
+	
+	private static class InMemoryResponse implements HttpResponse<InputStream>{
+		
+		private final HttpRequest request;
+		private final Response response;
+		private final HttpHeaders headers;
+		
+		private InMemoryResponse(HttpRequest request, Response response){
+			this.request = request;
+			this.response = response;
+			this.headers = HttpHeaders.of(response.headers, (name, value)->true);
+		}
+		
+		@Override
+		public int statusCode(){
+			return response.statusCode;
+		}
+		
+		@Override
+		public HttpRequest request(){
+			return request;
+		}
+		
+		@Override
+		public Optional<HttpResponse<InputStream>> previousResponse(){
+			return Optional.empty();
+		}
+		
+		@Override
+		public HttpHeaders headers(){
+			return headers;
+		}
+		
+		@Override
+		public InputStream body(){
+			return new ByteArrayInputStream(response.body);
+		}
+		
+		@Override
+		public Optional<SSLSession> sslSession(){
+			return Optional.empty();
+		}
+		
+		@Override
+		public URI uri(){
+			return request.uri();
+		}
+		
+		@Override
+		public HttpClient.Version version(){
+			return HttpClient.Version.HTTP_1_1;
+		}
+	}
+}
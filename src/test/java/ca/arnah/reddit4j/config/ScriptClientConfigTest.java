@@ -0,0 +1,139 @@
+package ca.arnah.reddit4j.config;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import ca.arnah.reddit4j.factories.RequestFactorySettings;
+import ca.arnah.reddit4j.objects.app.script.PersonalUseScript;
+import ca.arnah.reddit4j.objects.app.script.UserAgent;
+import ca.arnah.reddit4j.objects.response.listings.GetByIdResponse;
+import ca.arnah.reddit4j.requests.Endpoint;
+import ca.arnah.reddit4j.requests.RetryPolicy;
+import ca.arnah.reddit4j.requests.transport.InMemoryTransport;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ScriptClientConfigTest{
+	
+	private static final String BY_ID = """
+		{"kind": "Listing", "data": {"after": null, "before": null, "children": [
+			{"kind": "t3", "data": {"id": "abc", "name": "t3_abc", "title": "Hello"}}
+		]}}""";
+	
+	private final InMemoryTransport transport = new InMemoryTransport();
+	/**
+	 * Answers to the access token requests in order, once empty they fail.
+	 */
+	private final BlockingQueue<InMemoryTransport.Response> tokens = new LinkedBlockingQueue<>();
+	/**
+	 * The names of the threads that requested an access token.
+	 */
+	private final List<String> tokenRequests = new CopyOnWriteArrayList<>();
+	private final CountDownLatch refreshed = new CountDownLatch(2);
+	private ScriptClientConfig config;
+	
+	private static InMemoryTransport.Response token(String accessToken, int expiresIn){
+		return new InMemoryTransport.Response(200, """
+			{"access_token": "%s", "token_type": "bearer", "expires_in": %d, "scope": "*"}""".formatted(accessToken, expiresIn));
+	}
+	
+	@BeforeEach
+	void setUp(){
+		transport.respond(request->request.uri().getPath().endsWith("/api/v1/access_token"), request->{
+			// Taken before counting down, so a test reacting to the count can not hand this request a token meant for the next one.
+			InMemoryTransport.Response token = tokens.poll();
+			tokenRequests.add(Thread.currentThread().getName());
+			refreshed.countDown();
+			return token != null ? token : new InMemoryTransport.Response(500, "{\"message\": \"Internal Server Error\", \"error\": 500}");
+		});
+		transport.respond("/by_id/t3_abc", 200, BY_ID);
+		config = new ScriptClientConfig(new PersonalUseScript("client", "secret"), new UserAgent("test", "1.0", "someone"),
+			new RequestFactorySettings.Builder().transport(transport).retryPolicy(RetryPolicy.NONE).build());
+	}
+	
+	@AfterEach
+	void tearDown(){
+		config.getRedditRequestFactory().shutdown();
+	}
+	
+	/**
+	 * Sends a request through the config.
+	 *
+	 * @return The authorization header it was sent with.
+	 */
+	private String send(){
+		config.getRedditRequestFactory().request(GetByIdResponse.class).endpoint(Endpoint.GET_BY_ID, List.of("t3_abc")).build().execute();
+		return transport.getRequests().stream()
+			.filter(request->request.uri().getPath().contains("/by_id/"))
+			.reduce((first, second)->second)
+			.orElseThrow()
+			.headers()
+			.firstValue(RedditClientConfig.AUTHORIZATION)
+			.orElseThrow();
+	}
+	
+	/**
+	 * Keeps sending requests until one is sent with the given token.
+	 *
+	 * @return How long it took in nanoseconds.
+	 */
+	private long awaitToken(String accessToken, long timeoutMillis) throws InterruptedException{
+		long start = System.nanoTime();
+		while(!send().equals("bearer " + accessToken)){
+			assertTrue(System.nanoTime() - start < TimeUnit.MILLISECONDS.toNanos(timeoutMillis), "Never switched to " + accessToken);
+			TimeUnit.MILLISECONDS.sleep(20);
+		}
+		return System.nanoTime() - start;
+	}
+	
+	@Test
+	void tokenIsRefreshedBeforeExpiry() throws InterruptedException{
+		// Expires within the refresh margin, so the refresh is due right away.
+		tokens.add(token("first", 3));
+		tokens.add(token("second", 3600));
+		assertEquals("bearer first", send());
+		assertTrue(refreshed.await(2, TimeUnit.SECONDS));
+		assertTrue(tokenRequests.get(1).startsWith("TokenRefresher"), "Refreshed on " + tokenRequests.get(1));
+		awaitToken("second", 2000);
+		assertEquals(2, tokenRequests.size());
+	}
+	
+	@Test
+	void failedRefreshKeepsTokenUntilExpiry() throws InterruptedException{
+		long issued = System.nanoTime();
+		tokens.add(token("first", 3));
+		assertEquals("bearer first", send());
+		// The refresh due right away fails, the token it was meant to replace is still valid.
+		assertTrue(refreshed.await(2, TimeUnit.SECONDS));
+		assertEquals("bearer first", send());
+		tokens.add(token("second", 3600));
+		awaitToken("second", 5000);
+		long replacedAfter = System.nanoTime() - issued;
+		assertTrue(replacedAfter >= TimeUnit.MILLISECONDS.toNanos(2500), "Replaced after %dms".formatted(TimeUnit.NANOSECONDS.toMillis(replacedAfter)));
+		assertEquals(3, tokenRequests.size());
+	}
+	
+	@Test
+	void rejectedRefreshIsNotKept(){
+		// Stops the refresher, so the refresh needed for the first request is rejected.
+		config.getRedditRequestFactory().shutdown();
+		assertTimeoutPreemptively(Duration.ofSeconds(5), ()->{
+			assertThrows(RejectedExecutionException.class, config::validate);
+			// Would wait forever on the first attempt if it had been kept as the running refresh.
+			assertThrows(RejectedExecutionException.class, config::validate);
+		});
+		assertTrue(tokenRequests.isEmpty());
+	}
+}
@@ -0,0 +1,188 @@
+package ca.arnah.reddit4j.requests;
+
+import java.net.http.HttpTimeoutException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import ca.arnah.reddit4j.factories.RedditRequestFactory;
+import ca.arnah.reddit4j.factories.RequestFactorySettings;
+import ca.arnah.reddit4j.objects.response.listings.GetByIdResponse;
+import ca.arnah.reddit4j.requests.transport.InMemoryTransport;
+import org.junit.jupiter.api.Test;
+
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class AdaptiveConcurrencyLimitTest extends RequestTestSupport{
+	
+	private static final long LATENCY = TimeUnit.MILLISECONDS.toNanos(10);
+	
+	/**
+	 * Takes every slot of the limit, as a client that has more work queued than it may send would.
+	 */
+	private static void fill(AdaptiveConcurrencyLimit limit) throws InterruptedException{
+		while(limit.getInFlight() < limit.getLimit()){
+			limit.acquire();
+		}
+	}
+	
+	@Test
+	void successIncreasesAdditively() throws InterruptedException{
+		AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(4, 1, 16, 0.5, 2);
+		fill(limit);
+		// Roughly one more slot per limit worth of successful requests.
+		for(int i = 0; i < 4; i++){
+			limit.onSuccess(LATENCY);
+			fill(limit);
+		}
+		assertEquals(4, limit.getLimit());
+		limit.onSuccess(LATENCY);
+		assertEquals(5, limit.getLimit());
+	}
+	
+	@Test
+	void unusedLimitDoesNotGrow() throws InterruptedException{
+		AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(4, 1, 16, 0.5, 2);
+		for(int i = 0; i < 20; i++){
+			limit.acquire();
+			limit.onSuccess(LATENCY);
+		}
+		assertEquals(4, limit.getLimit());
+	}
+	
+	@Test
+	void dropDecreasesMultiplicatively() throws InterruptedException{
+		AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(16, 1, 16, 0.5, 2);
+		// A latency of 0 is a request sent after the previous decrease.
+		limit.acquire();
+		limit.onDropped(0);
+		assertEquals(8, limit.getLimit());
+		limit.acquire();
+		limit.onDropped(0);
+		assertEquals(4, limit.getLimit());
+		assertEquals(0, limit.getInFlight());
+	}
+	
+	@Test
+	void burstOfDropsDecreasesOnce() throws InterruptedException{
+		AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(8, 1, 16, 0.5, 2);
+		fill(limit);
+		// All sent together before the first one came back.
+		for(int i = 0; i < 8; i++){
+			limit.onDropped(LATENCY);
+		}
+		assertEquals(4, limit.getLimit());
+		assertEquals(0, limit.getInFlight());
+		limit.acquire();
+		limit.onDropped(0);
+		assertEquals(2, limit.getLimit());
+	}
+	
+	@Test
+	void sustainedSlowdownDecreasesMultiplicatively() throws InterruptedException{
+		AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(16, 1, 16, 0.5, 2);
+		for(int i = 0; i < 20; i++){
+			limit.acquire();
+			limit.onSuccess(Endpoint.GET_BY_ID, LATENCY);
+		}
+		// A single slow response is not enough.
+		limit.acquire();
+		limit.onSuccess(Endpoint.GET_BY_ID, LATENCY * 3);
+		assertEquals(16, limit.getLimit());
+		for(int i = 0; i < 10; i++){
+			limit.acquire();
+			limit.onSuccess(Endpoint.GET_BY_ID, LATENCY * 3);
+		}
+		// Lowered once, the slow responses that followed were sent before the decrease.
+		assertEquals(8, limit.getLimit());
+	}
+	
+	@Test
+	void mixedLatencyKeepsLimit() throws InterruptedException{
+		AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(16, 1, 16, 0.5, 2);
+		for(int i = 0; i < 200; i++){
+			fill(limit);
+			limit.onSuccess(Endpoint.GET_BY_ID, i % 2 == 0 ? LATENCY : LATENCY * 4);
+		}
+		assertEquals(16, limit.getLimit());
+		assertEquals(1, limit.getHistory().size());
+	}
+	
+	@Test
+	void slowEndpointDoesNotLowerLimit() throws InterruptedException{
+		AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(16, 1, 16, 0.5, 2);
+		for(int i = 0; i < 200; i++){
+			fill(limit);
+			limit.onSuccess(Endpoint.GET_BY_ID, LATENCY);
+			fill(limit);
+			limit.onSuccess(Endpoint.GET_INFO, LATENCY * 5);
+		}
+		assertEquals(16, limit.getLimit());
+		assertEquals(1, limit.getHistory().size());
+	}
+	
+	@Test
+	void limitStaysWithinBounds() throws InterruptedException{
+		AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(4, 2, 6, 0.5, 2);
+		for(int i = 0; i < 10; i++){
+			limit.acquire();
+			limit.onDropped(0);
+		}
+		assertEquals(2, limit.getLimit());
+		for(int i = 0; i < 100; i++){
+			fill(limit);
+			limit.onSuccess(LATENCY);
+		}
+		assertEquals(6, limit.getLimit());
+		assertThrows(IllegalArgumentException.class, ()->new AdaptiveConcurrencyLimit(1, 2, 6, 0.5, 2));
+		assertThrows(IllegalArgumentException.class, ()->new AdaptiveConcurrencyLimit(4, 2, 6, 1, 2));
+	}
+	
+	@Test
+	void tooManyRequestsLowersLimit(){
+		AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(8, 1, 16, 0.5, 2);
+		useSettings(new RequestFactorySettings.Builder().concurrencyLimit(limit).retryPolicy(RetryPolicy.NONE));
+		transport.respond("/by_id/t3_abc", 429, "{\"message\": \"Too Many Requests\", \"error\": 429}");
+		assertThrows(ExecutionException.class, ()->getById().executeAsync().get(5, TimeUnit.SECONDS));
+		assertEquals(4, limit.getLimit());
+	}
+	
+	@Test
+	void burstOfTooManyRequestsLowersLimitOnce() throws Exception{
+		AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(8, 1, 16, 0.5, 2);
+		useSettings(new RequestFactorySettings.Builder().concurrencyLimit(limit).retryPolicy(RetryPolicy.NONE));
+		CountDownLatch sent = new CountDownLatch(8);
+		transport.respond(request->true, request->{
+			// Answer only once all of them are in flight.
+			sent.countDown();
+			try{
+				sent.await(5, TimeUnit.SECONDS);
+			}catch(InterruptedException ignored){
+			}
+			return new InMemoryTransport.Response(429, "{\"message\": \"Too Many Requests\", \"error\": 429}");
+		});
+		List<CompletableFuture<GetByIdResponse>> futures = new ArrayList<>();
+		for(int i = 0; i < 8; i++){
+			futures.add(getById().executeAsync());
+		}
+		for(CompletableFuture<GetByIdResponse> future : futures){
+			assertThrows(ExecutionException.class, ()->future.get(10, TimeUnit.SECONDS));
+		}
+		assertEquals(4, limit.getLimit());
+	}
+	
+	@Test
+	void transportTimeoutLowersLimit(){
+		AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(8, 1, 16, 0.5, 2);
+		requestFactory.shutdown();
+		requestFactory = new RedditRequestFactory(BASE_URL, request->request, new RequestFactorySettings.Builder().transport(request->{
+			throw new HttpTimeoutException("request timed out");
+		}).concurrencyLimit(limit).retryPolicy(RetryPolicy.NONE).build());
+		assertThrows(ExecutionException.class, ()->getById().executeAsync().get(5, TimeUnit.SECONDS));
+		assertEquals(4, limit.getLimit());
+	}
+}
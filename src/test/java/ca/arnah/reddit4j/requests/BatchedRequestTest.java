@@ -0,0 +1,89 @@
+package ca.arnah.reddit4j.requests;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import ca.arnah.reddit4j.RedditClient;
+import ca.arnah.reddit4j.objects.reddit.Link;
+import ca.arnah.reddit4j.requests.transport.InMemoryTransport;
+import org.junit.jupiter.api.Test;
+
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BatchedRequestTest extends RequestTestSupport{
+	
+	@Test
+	void partitionsByCountAndLength(){
+		var ids = IntStream.range(0, 250).mapToObj(i->"t3_" + i).toList();
+		var batches = BatchedRequest.partition(ids, 100, 4000);
+		assertEquals(List.of(100, 100, 50), batches.stream().map(List::size).toList());
+		assertEquals(ids, batches.stream().flatMap(List::stream).toList());
+		assertEquals(3, BatchedRequest.partition(List.of("aaaa", "bbbb", "cccc"), 100, 8).size());
+	}
+	
+	@Test
+	void largeIdListIsBatchedInOrder() throws Exception{
+		var ids = IntStream.range(0, 250).mapToObj(i->"t3_" + i).toList();
+		CountDownLatch lastBatch = new CountDownLatch(1);
+		transport.respond(request->true, request->{
+			String path = request.uri().getPath();
+			List<String> requested = List.of(path.substring(path.lastIndexOf('/') + 1).split(","));
+			if(requested.contains(ids.get(0))){
+				// Hold the first batch back so it completes after the others.
+				try{
+					lastBatch.await(5, TimeUnit.SECONDS);
+				}catch(InterruptedException ignored){
+				}
+			}
+			if(requested.contains(ids.get(ids.size() - 1))){
+				lastBatch.countDown();
+			}
+			String children = requested.stream()
+				.map(id->"{\"kind\": \"t3\", \"data\": {\"id\": \"%s\", \"name\": \"%s\"}}".formatted(id.substring(3), id))
+				.collect(Collectors.joining(","));
+			return new InMemoryTransport.Response(200, """
+				{"kind": "Listing", "data": {"after": null, "before": null, "children": [%s]}}""".formatted(children));
+		});
+		var request = client().getById(ids);
+		assertEquals(3, request.size());
+		var links = request.executeAsync().get(10, TimeUnit.SECONDS);
+		assertEquals(ids, links.stream().map(Link::getFullName).toList());
+		assertEquals(3, transport.getRequests().size());
+		assertTrue(transport.getRequests().stream().allMatch(sent->sent.uri().getPath().split(",").length <= RedditClient.MAX_IDS_PER_REQUEST));
+	}
+	
+	@Test
+	void cancelledBatchesAreNeverSent() throws Exception{
+		CountDownLatch blocking = new CountDownLatch(1);
+		transport.respond(request->true, request->{
+			try{
+				blocking.await();
+			}catch(InterruptedException ignored){
+			}
+			return new InMemoryTransport.Response(200, BY_ID);
+		});
+		// Fill every concurrency slot so the batches stay queued.
+		int limit = requestFactory.getRateLimiter().getConcurrencyLimit().getLimit();
+		List<CompletableFuture<?>> sent = new ArrayList<>();
+		for(int i = 0; i < limit; i++){
+			sent.add(getById().executeAsync());
+		}
+		var ids = IntStream.range(0, 150).mapToObj(i->"t3_" + i).toList();
+		var request = client().getById(ids);
+		var future = request.executeAsync();
+		future.cancel(true);
+		// Queued behind the cancelled batches, so once everything completed they were taken off the queue.
+		sent.add(getById().executeAsync());
+		blocking.countDown();
+		CompletableFuture.allOf(sent.toArray(CompletableFuture[]::new)).get(5, TimeUnit.SECONDS);
+		assertTrue(request.getBatches().stream().allMatch(CompletableFuture::isCompletedExceptionally));
+		assertEquals(limit + 1, transport.getRequests().size());
+		assertTrue(transport.getRequests().stream().noneMatch(exchange->exchange.uri().getPath().contains("t3_0")));
+	}
+}
@@ -0,0 +1,65 @@
+package ca.arnah.reddit4j.requests;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import ca.arnah.reddit4j.factories.RequestFactorySettings;
+import ca.arnah.reddit4j.requests.transport.InMemoryTransport;
+import org.junit.jupiter.api.Test;
+
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeFalse;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+class ExecutionModeTest extends RequestTestSupport{
+	
+	private final CompletableFuture<Thread> sentOn = new CompletableFuture<>();
+	
+	private static boolean isVirtual(Thread thread){
+		try{
+			return (boolean) Thread.class.getMethod("isVirtual").invoke(thread);
+		}catch(ReflectiveOperationException ex){
+			// Before JDK 21 every thread is a platform thread.
+			return false;
+		}
+	}
+	
+	/**
+	 * Runs a request with the given mode, remembering the thread it was sent on.
+	 */
+	private void sendWith(ExecutionMode executionMode) throws Exception{
+		useSettings(new RequestFactorySettings.Builder().executionMode(executionMode));
+		transport.respond(request->true, request->{
+			sentOn.complete(Thread.currentThread());
+			return new InMemoryTransport.Response(200, BY_ID);
+		});
+		assertEquals("Hello", getById().executeAsync().get(5, TimeUnit.SECONDS).getLinks().get(0).getTitle());
+	}
+	
+	@Test
+	void platformRunsRequests() throws Exception{
+		sendWith(ExecutionMode.PLATFORM);
+		assertFalse(isVirtual(sentOn.get()));
+		assertTrue(sentOn.get().getName().startsWith("RateLimiter-Worker-"));
+	}
+	
+	@Test
+	void virtualRunsRequests() throws Exception{
+		assumeTrue(ExecutionMode.VIRTUAL.isSupported(), "Virtual threads require JDK 21");
+		sendWith(ExecutionMode.VIRTUAL);
+		assertEquals(ExecutionMode.VIRTUAL, requestFactory.getRateLimiter().getExecutionMode());
+		assertTrue(isVirtual(sentOn.get()));
+	}
+	
+	@Test
+	void virtualFallsBackToPlatform() throws Exception{
+		assumeFalse(ExecutionMode.VIRTUAL.isSupported(), "Virtual threads are supported");
+		assertThrows(UnsupportedOperationException.class, ()->ExecutionMode.VIRTUAL.threadFactory("test"));
+		sendWith(ExecutionMode.VIRTUAL);
+		assertEquals(ExecutionMode.PLATFORM, requestFactory.getRateLimiter().getExecutionMode());
+		assertFalse(isVirtual(sentOn.get()));
+	}
+}
@@ -0,0 +1,70 @@
+package ca.arnah.reddit4j.requests;
+
+import java.util.ArrayList;
+import java.util.List;
+import ca.arnah.reddit4j.objects.response.listings.GetByIdResponse;
+import org.junit.jupiter.api.Test;
+
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+class PriorityRequestQueueTest extends RequestTestSupport{
+	
+	private RedditRequest<GetByIdResponse> request(RequestPriority priority){
+		return requestFactory.request(GetByIdResponse.class).endpoint(Endpoint.GET_BY_ID, List.of("t3_abc")).priority(priority).build();
+	}
+	
+	private static List<RequestPriority> takeAll(PriorityRequestQueue queue) throws InterruptedException{
+		List<RequestPriority> taken = new ArrayList<>();
+		while(queue.size() > 0){
+			taken.add(queue.take().getPriority());
+		}
+		return taken;
+	}
+	
+	@Test
+	void takesHighestLaneFirst() throws InterruptedException{
+		PriorityRequestQueue queue = new PriorityRequestQueue();
+		var first = request(RequestPriority.NORMAL);
+		queue.add(request(RequestPriority.LOW));
+		queue.add(first);
+		queue.add(request(RequestPriority.HIGH));
+		queue.add(request(RequestPriority.NORMAL));
+		assertEquals(RequestPriority.HIGH, queue.take().getPriority());
+		// First in, first out within a lane.
+		assertSame(first, queue.take());
+		assertEquals(List.of(RequestPriority.NORMAL, RequestPriority.LOW), takeAll(queue));
+	}
+	
+	@Test
+	void starvedLaneGetsEveryFewPicks() throws InterruptedException{
+		// Every request below the highest lane counts as starved right away.
+		PriorityRequestQueue queue = new PriorityRequestQueue(0, 2);
+		for(int i = 0; i < 3; i++){
+			queue.add(request(RequestPriority.LOW));
+		}
+		for(int i = 0; i < 6; i++){
+			queue.add(request(RequestPriority.HIGH));
+		}
+		assertEquals(List.of(
+			RequestPriority.HIGH, RequestPriority.HIGH, RequestPriority.LOW,
+			RequestPriority.HIGH, RequestPriority.HIGH, RequestPriority.LOW,
+			RequestPriority.HIGH, RequestPriority.HIGH, RequestPriority.LOW), takeAll(queue));
+	}
+	
+	@Test
+	void highLaneIsPreferredOverStarvedBacklog() throws InterruptedException{
+		PriorityRequestQueue queue = new PriorityRequestQueue(0, 2);
+		for(int i = 0; i < 10; i++){
+			queue.add(request(RequestPriority.NORMAL));
+			queue.add(request(RequestPriority.LOW));
+		}
+		// The whole backlog is starved, but only every third pick goes to the longest waiting of it.
+		assertEquals(RequestPriority.NORMAL, queue.take().getPriority());
+		assertEquals(RequestPriority.NORMAL, queue.take().getPriority());
+		assertEquals(RequestPriority.LOW, queue.take().getPriority());
+		queue.add(request(RequestPriority.HIGH));
+		assertEquals(RequestPriority.HIGH, queue.take().getPriority());
+	}
+}
@@ -0,0 +1,71 @@
+package ca.arnah.reddit4j.requests;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+import ca.arnah.reddit4j.requests.transport.InMemoryTransport;
+import org.junit.jupiter.api.Test;
+
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RateLimiterTest extends RequestTestSupport{
+	
+	private final List<Long> sentAt = new CopyOnWriteArrayList<>();
+	
+	/**
+	 * Answers every request with a budget of <code>budget</code> requests for a window of one second, counting down with every request.
+	 */
+	private void respondWithBudget(int budget){
+		AtomicInteger used = new AtomicInteger();
+		transport.respond(request->true, request->{
+			sentAt.add(System.nanoTime());
+			int spent = used.incrementAndGet();
+			return new InMemoryTransport.Response(200, BY_ID)
+				.header("x-ratelimit-remaining", String.valueOf(Math.max(0, budget - spent)))
+				.header("x-ratelimit-used", String.valueOf(spent))
+				.header("x-ratelimit-reset", "1");
+		});
+	}
+	
+	private void sendAll(int count) throws Exception{
+		var futures = IntStream.range(0, count).mapToObj(i->getById().executeAsync()).toArray(CompletableFuture[]::new);
+		CompletableFuture.allOf(futures).get(10, TimeUnit.SECONDS);
+	}
+	
+	@Test
+	void budgetIsReconciledFromHeaders(){
+		respondWithBudget(100);
+		getById().execute();
+		assertEquals(99, requestFactory.getRateLimiter().getRemaining());
+		assertTrue(requestFactory.getRateLimiter().getSecondsUntilReset() <= 1);
+	}
+	
+	@Test
+	void dispatchIsSpreadOverResetWindow() throws Exception{
+		respondWithBudget(5);
+		// The first response tells us there are 4 requests left for the next second.
+		getById().execute();
+		sendAll(4);
+		assertEquals(5, sentAt.size());
+		for(int i = 2; i < sentAt.size(); i++){
+			long gap = sentAt.get(i) - sentAt.get(i - 1);
+			assertTrue(gap >= TimeUnit.MILLISECONDS.toNanos(150), "Requests %d and %d were %dms apart".formatted(i - 1, i, TimeUnit.NANOSECONDS.toMillis(gap)));
+		}
+		long spread = sentAt.get(sentAt.size() - 1) - sentAt.get(0);
+		assertTrue(spread >= TimeUnit.MILLISECONDS.toNanos(600) && spread < TimeUnit.MILLISECONDS.toNanos(1500), "Spread over %dms".formatted(TimeUnit.NANOSECONDS.toMillis(spread)));
+	}
+	
+	@Test
+	void exhaustedBudgetWaitsForReset() throws Exception{
+		respondWithBudget(1);
+		getById().execute();
+		sendAll(1);
+		long waited = sentAt.get(1) - sentAt.get(0);
+		assertTrue(waited >= TimeUnit.MILLISECONDS.toNanos(800) && waited < TimeUnit.SECONDS.toNanos(3), "Waited %dms".formatted(TimeUnit.NANOSECONDS.toMillis(waited)));
+	}
+}
@@ -0,0 +1,102 @@
+package ca.arnah.reddit4j.requests;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.zip.GZIPOutputStream;
+import ca.arnah.reddit4j.exceptions.HttpStatusCodeException;
+import ca.arnah.reddit4j.objects.response.listings.GetByIdResponse;
+import ca.arnah.reddit4j.requests.transport.InMemoryTransport;
+import org.junit.jupiter.api.Test;
+
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RedditRequestTest extends RequestTestSupport{
+	
+	@Test
+	void decodesBody(){
+		transport.respond("/by_id/t3_abc", 200, BY_ID);
+		var response = getById().execute();
+		assertEquals("Hello", response.getLinks().get(0).getTitle());
+		assertEquals("gzip, deflate", transport.getRequests().get(0).headers().firstValue(RedditRequest.ACCEPT_ENCODING).orElseThrow());
+	}
+	
+	@Test
+	void decodesGzipBody() throws IOException{
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		try(GZIPOutputStream gzip = new GZIPOutputStream(out)){
+			gzip.write(BY_ID.getBytes(StandardCharsets.UTF_8));
+		}
+		transport.respond("/by_id/t3_abc", new InMemoryTransport.Response(200, out.toByteArray()).header(RedditRequest.CONTENT_ENCODING, "gzip"));
+		var request = getById();
+		assertEquals("t3_abc", request.execute().getLinks().get(0).getFullName());
+		assertEquals(out.size(), request.getCompressedBytes());
+		assertTrue(request.getUncompressedBytes() > 0);
+	}
+	
+	@Test
+	void errorStatusKeepsBody(){
+		transport.respond("/by_id/t3_abc", 503, "{\"error\": 503}");
+		var ex = assertThrows(ExecutionException.class, ()->getById().executeAsync().get());
+		var cause = assertInstanceOf(HttpStatusCodeException.class, ex.getCause());
+		assertEquals(503, cause.getStatusCode());
+		assertTrue(cause.getMessage().contains("{\"error\": 503}"));
+	}
+	
+	@Test
+	void timeoutAbortsInFlightRequest() throws InterruptedException{
+		CountDownLatch interrupted = new CountDownLatch(1);
+		transport.respond(request->true, request->{
+			try{
+				Thread.sleep(TimeUnit.SECONDS.toMillis(30));
+			}catch(InterruptedException ex){
+				interrupted.countDown();
+			}
+			return new InMemoryTransport.Response(200, BY_ID);
+		});
+		var future = requestFactory.request(GetByIdResponse.class).endpoint(Endpoint.GET_BY_ID, List.of("t3_abc")).timeout(Duration.ofMillis(200)).build().executeAsync();
+		var ex = assertThrows(ExecutionException.class, ()->future.get(5, TimeUnit.SECONDS));
+		assertInstanceOf(TimeoutException.class, ex.getCause());
+		assertTrue(interrupted.await(5, TimeUnit.SECONDS));
+	}
+	
+	@Test
+	void cancelledRequestIsNeverSent() throws Exception{
+		CountDownLatch blocking = new CountDownLatch(1);
+		transport.respond(request->true, request->{
+			try{
+				blocking.await();
+			}catch(InterruptedException ignored){
+			}
+			return new InMemoryTransport.Response(200, BY_ID);
+		});
+		// Fill every concurrency slot so the next request stays queued.
+		int limit = requestFactory.getRateLimiter().getConcurrencyLimit().getLimit();
+		List<CompletableFuture<GetByIdResponse>> sent = new ArrayList<>();
+		for(int i = 0; i < limit; i++){
+			sent.add(getById().executeAsync());
+		}
+		var request = getById();
+		var future = request.executeAsync();
+		future.cancel(true);
+		// Queued behind the cancelled request, so once everything completed the cancelled one was taken off the queue.
+		sent.add(getById().executeAsync());
+		blocking.countDown();
+		CompletableFuture.allOf(sent.toArray(CompletableFuture[]::new)).get(5, TimeUnit.SECONDS);
+		assertTrue(future.isCancelled());
+		assertTrue(request.isAbandoned());
+		assertEquals(limit + 1, transport.getRequests().size());
+	}
+}
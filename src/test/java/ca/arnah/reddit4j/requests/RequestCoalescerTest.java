@@ -0,0 +1,56 @@
+package ca.arnah.reddit4j.requests;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import ca.arnah.reddit4j.factories.RequestFactorySettings;
+import ca.arnah.reddit4j.requests.transport.InMemoryTransport;
+import org.junit.jupiter.api.Test;
+
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+class RequestCoalescerTest extends RequestTestSupport{
+	
+	@Test
+	void identicalRequestsShareExchange() throws Exception{
+		useSettings(new RequestFactorySettings.Builder().coalesceRequests(true));
+		CountDownLatch blocking = new CountDownLatch(1);
+		transport.respond(request->true, request->{
+			try{
+				blocking.await();
+			}catch(InterruptedException ignored){
+			}
+			return new InMemoryTransport.Response(200, BY_ID);
+		});
+		var first = getById().executeAsync();
+		var second = getById().executeAsync();
+		var third = getById().executeAsync();
+		third.cancel(true);
+		blocking.countDown();
+		assertSame(first.get(5, TimeUnit.SECONDS), second.get(5, TimeUnit.SECONDS));
+		assertEquals(1, transport.getRequests().size());
+		assertEquals(2, requestFactory.getStatistics().getCollapsed());
+		assertEquals(3, requestFactory.getStatistics().getCollapseRatio());
+	}
+	
+	@Test
+	void disabledByDefault() throws Exception{
+		CountDownLatch blocking = new CountDownLatch(1);
+		transport.respond(request->true, request->{
+			try{
+				blocking.await();
+			}catch(InterruptedException ignored){
+			}
+			return new InMemoryTransport.Response(200, BY_ID);
+		});
+		var first = getById().executeAsync();
+		var second = getById().executeAsync();
+		blocking.countDown();
+		assertNotSame(first.get(5, TimeUnit.SECONDS), second.get(5, TimeUnit.SECONDS));
+		assertEquals(2, transport.getRequests().size());
+		assertNull(requestFactory.getCoalescer());
+	}
+}
@@ -0,0 +1,94 @@
+package ca.arnah.reddit4j.requests;
+
+import java.util.List;
+import ca.arnah.reddit4j.RedditClient;
+import ca.arnah.reddit4j.config.RedditClientConfig;
+import ca.arnah.reddit4j.factories.RedditRequestFactory;
+import ca.arnah.reddit4j.factories.RequestFactorySettings;
+import ca.arnah.reddit4j.objects.response.listings.GetByIdResponse;
+import ca.arnah.reddit4j.requests.transport.InMemoryTransport;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+
+/**
+ * Runs requests against an {@link InMemoryTransport} through a real {@link RedditRequestFactory}.
+ */
+public abstract class RequestTestSupport{
+	
+	protected static final String BASE_URL = "https://oauth.reddit.com";
+	protected static final String IDENTITY = "client/user";
+	protected static final String BY_ID = """
+		{"kind": "Listing", "data": {"after": null, "before": null, "children": [
+			{"kind": "t3", "data": {"id": "abc", "name": "t3_abc", "title": "Hello"}}
+		]}}""";
+	
+	protected InMemoryTransport transport;
+	protected RedditRequestFactory requestFactory;
+	
+	@BeforeEach
+	void setUpFactory(){
+		transport = new InMemoryTransport();
+		requestFactory = new RedditRequestFactory(BASE_URL, request->request, new RequestFactorySettings.Builder().transport(transport).build());
+	}
+	
+	@AfterEach
+	void shutDownFactory(){
+		requestFactory.shutdown();
+	}
+	
+	/**
+	 * Replaces the request factory with one using the given settings, on the same transport.
+	 */
+	protected void useSettings(RequestFactorySettings.Builder settings){
+		useSettings(IDENTITY, settings);
+	}
+	
+	protected void useSettings(String identity, RequestFactorySettings.Builder settings){
+		requestFactory.shutdown();
+		requestFactory = new RedditRequestFactory(BASE_URL, identity, request->request, settings.transport(transport).build());
+	}
+	
+	protected RedditRequest<GetByIdResponse> getById(){
+		return requestFactory.request(GetByIdResponse.class).endpoint(Endpoint.GET_BY_ID, List.of("t3_abc")).build();
+	}
+	
+	/**
+	 * @return A listing page holding a single link, followed by the given fullname.
+	 */
+	protected static String page(String after){
+		return """
+			{"kind": "Listing", "data": {"after": %s, "before": null, "children": [
+				{"kind": "t3", "data": {"id": "abc", "name": "t3_abc", "title": "Hello"}}
+			]}}""".formatted(after == null ? "null" : "\"" + after + "\"");
+	}
+	
+	/**
+	 * Answers every listing request with three pages, the first followed by <code>t3_2</code> and the second by <code>t3_3</code>.
+	 */
+	protected void respondWithThreePages(){
+		transport.respond(request->true, request->{
+			String query = request.uri().getQuery();
+			String after = query == null || !query.contains("after=") ? "t3_2" : query.contains("after=t3_2") ? "t3_3" : null;
+			return new InMemoryTransport.Response(200, page(after));
+		});
+	}
+	
+	protected RedditClient client(){
+		return new RedditClient(new RedditClientConfig(){
+			@Override
+			public boolean validate(){
+				return true;
+			}
+			
+			@Override
+			public RedditRequestFactory getRedditRequestFactory(){
+				return requestFactory;
+			}
+			
+			@Override
+			public boolean hasCredentials(){
+				return false;
+			}
+		});
+	}
+}
@@ -0,0 +1,141 @@
+package ca.arnah.reddit4j.requests;
+
+import java.io.IOException;
+import java.net.http.HttpHeaders;
+import java.time.Duration;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import ca.arnah.reddit4j.exceptions.HttpStatusCodeException;
+import ca.arnah.reddit4j.factories.RedditRequestFactory;
+import ca.arnah.reddit4j.factories.RequestFactorySettings;
+import ca.arnah.reddit4j.objects.response.listings.GetByIdResponse;
+import ca.arnah.reddit4j.requests.transport.InMemoryTransport;
+import org.junit.jupiter.api.Test;
+
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RetryPolicyTest extends RequestTestSupport{
+	
+	private static final String PREPROCESSED = "X-Preprocessed";
+	
+	/**
+	 * Answers the first attempt with the given status and headers, and every following one with a link.
+	 *
+	 * @return When each attempt was sent, in {@link System#nanoTime()}.
+	 */
+	private List<Long> failFirstAttempt(int statusCode, Map<String, String> headers){
+		List<Long> attempts = new CopyOnWriteArrayList<>();
+		transport.respond(request->true, request->{
+			attempts.add(System.nanoTime());
+			if(attempts.size() == 1){
+				InMemoryTransport.Response response = new InMemoryTransport.Response(statusCode, "");
+				headers.forEach(response::header);
+				return response;
+			}
+			return new InMemoryTransport.Response(200, BY_ID);
+		});
+		return attempts;
+	}
+	
+	private static HttpStatusCodeException status(int statusCode, Map<String, String> headers){
+		var values = headers.entrySet().stream().collect(Collectors.toMap(Map.Entry::getKey, entry->List.of(entry.getValue())));
+		return new HttpStatusCodeException("Failed", statusCode, HttpHeaders.of(values, (name, value)->true));
+	}
+	
+	@Test
+	void retriesUnavailableResponse(){
+		requestFactory.shutdown();
+		requestFactory = new RedditRequestFactory(BASE_URL, request->request.header(PREPROCESSED, "true"), new RequestFactorySettings.Builder().transport(transport).build());
+		failFirstAttempt(503, Map.of("Retry-After", "0"));
+		var request = getById();
+		assertEquals("Hello", request.execute().getLinks().get(0).getTitle());
+		assertEquals(1, request.getRetries());
+		assertEquals(1, requestFactory.getStatistics().getRetries());
+		assertEquals(2, transport.getRequests().size());
+		// Headers from the preprocessor must not be added again for the retry.
+		for(var sent : transport.getRequests()){
+			assertEquals(List.of("true"), sent.headers().allValues(PREPROCESSED));
+		}
+	}
+	
+	@Test
+	void writeIsNotRetriedOnServerError(){
+		failFirstAttempt(503, Map.of("Retry-After", "0"));
+		var request = requestFactory.request(GetByIdResponse.class).endpoint(Endpoint.GET_BY_ID, List.of("t3_abc")).post(Map.of("id", "t3_abc")).build();
+		var ex = assertThrows(ExecutionException.class, ()->request.executeAsync().get(5, TimeUnit.SECONDS));
+		assertEquals(503, assertInstanceOf(HttpStatusCodeException.class, ex.getCause()).getStatusCode());
+		assertEquals(0, request.getRetries());
+		assertEquals(1, transport.getRequests().size());
+	}
+	
+	@Test
+	void writeIsRetriedAfterTooManyRequests(){
+		failFirstAttempt(429, Map.of("Retry-After", "0"));
+		var request = requestFactory.request(GetByIdResponse.class).endpoint(Endpoint.GET_BY_ID, List.of("t3_abc")).post(Map.of("id", "t3_abc")).build();
+		assertEquals("Hello", request.execute().getLinks().get(0).getTitle());
+		assertEquals(1, request.getRetries());
+	}
+	
+	@Test
+	void retryWaitsForRetryAfter(){
+		List<Long> attempts = failFirstAttempt(503, Map.of("Retry-After", "1"));
+		getById().execute();
+		assertEquals(2, attempts.size());
+		long waited = attempts.get(1) - attempts.get(0);
+		assertTrue(waited >= TimeUnit.MILLISECONDS.toNanos(950), "Retried after %dms".formatted(TimeUnit.NANOSECONDS.toMillis(waited)));
+	}
+	
+	@Test
+	void retryAfterTakesPrecedence(){
+		RetryPolicy policy = new RetryPolicy.Builder().build();
+		assertEquals(Duration.ofSeconds(7), policy.getDelay(0, status(503, Map.of("Retry-After", "7", "x-ratelimit-reset", "30"))));
+		String date = DateTimeFormatter.RFC_1123_DATE_TIME.format(ZonedDateTime.now(ZoneOffset.UTC).plusSeconds(60));
+		Duration untilDate = policy.getDelay(0, status(503, Map.of("Retry-After", date)));
+		assertTrue(untilDate.compareTo(Duration.ofSeconds(58)) >= 0 && untilDate.compareTo(Duration.ofSeconds(60)) <= 0, untilDate.toString());
+		// Without Retry-After an exhausted budget waits for the rate limit reset.
+		assertEquals(Duration.ofSeconds(30), policy.getDelay(0, status(429, Map.of("x-ratelimit-reset", "30"))));
+		assertEquals(Duration.ofSeconds(30), policy.getDelay(0, status(503, Map.of("x-ratelimit-remaining", "0.0", "x-ratelimit-reset", "30"))));
+	}
+	
+	@Test
+	void backoffGrowsExponentiallyWithJitter(){
+		RetryPolicy policy = new RetryPolicy.Builder().baseDelay(Duration.ofMillis(100)).maxDelay(Duration.ofSeconds(1)).build();
+		for(int retries = 0; retries < 8; retries++){
+			long cap = Math.min(1000, 100L << retries);
+			long longest = 0;
+			for(int i = 0; i < 200; i++){
+				long delay = policy.getDelay(retries, i % 2 == 0 ? new IOException("reset") : status(503, Map.of())).toMillis();
+				assertTrue(delay >= 0 && delay <= cap, "Delay of %dms for retry %d".formatted(delay, retries));
+				longest = Math.max(longest, delay);
+			}
+			// Full jitter spreads the delays over the whole range.
+			assertTrue(longest > cap / 2, "Longest delay %dms for retry %d".formatted(longest, retries));
+		}
+	}
+	
+	@Test
+	void givesUpAfterMaxRetries(){
+		AtomicInteger attempts = new AtomicInteger();
+		transport.respond(request->true, request->{
+			attempts.incrementAndGet();
+			return new InMemoryTransport.Response(503, "").header("Retry-After", "0");
+		});
+		useSettings(new RequestFactorySettings.Builder().retryPolicy(new RetryPolicy.Builder().maxRetries(2).build()));
+		var request = getById();
+		assertThrows(ExecutionException.class, ()->request.executeAsync().get(5, TimeUnit.SECONDS));
+		assertEquals(3, attempts.get());
+		assertEquals(2, request.getRetries());
+	}
+}
@@ -0,0 +1,47 @@
+package ca.arnah.reddit4j.requests;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import ca.arnah.reddit4j.objects.reddit.Link;
+import ca.arnah.reddit4j.objects.reddit.Subreddit;
+import org.junit.jupiter.api.Test;
+
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ThingResolverTest extends RequestTestSupport{
+	
+	@Test
+	void resolverBatchesLookups() throws Exception{
+		transport.respond("/api/info", 200, """
+			{"kind": "Listing", "data": {"after": null, "before": null, "children": [
+				{"kind": "t3", "data": {"id": "abc", "name": "t3_abc", "title": "Hello"}},
+				{"kind": "t5", "data": {"name": "t5_xyz", "display_name": "test"}}
+			]}}""");
+		ThingResolver resolver = new ThingResolver.Builder(requestFactory).window(Duration.ofMillis(50)).build();
+		var link = resolver.load("t3_abc");
+		var subreddit = resolver.load("t5_xyz");
+		var missing = resolver.load("t1_none");
+		assertSame(link, resolver.load("t3_abc"));
+		assertEquals("Hello", assertInstanceOf(Link.class, link.get(5, TimeUnit.SECONDS)).getTitle());
+		assertInstanceOf(Subreddit.class, subreddit.get(5, TimeUnit.SECONDS));
+		assertNull(missing.get(5, TimeUnit.SECONDS));
+		assertEquals(1, transport.getRequests().size());
+		assertTrue(transport.getRequests().get(0).uri().getQuery().contains("id=t3_abc,t5_xyz,t1_none"));
+	}
+	
+	@Test
+	void malformedFullNamesAreRejected(){
+		ThingResolver resolver = new ThingResolver.Builder(requestFactory).build();
+		for(String fullName : new String[]{"abc", "_abc", "t3_", "t9_abc", "t2_abc"}){
+			var ex = assertThrows(IllegalArgumentException.class, ()->resolver.load(fullName));
+			assertTrue(ex.getMessage().contains(fullName));
+		}
+		assertTrue(transport.getRequests().isEmpty());
+	}
+}
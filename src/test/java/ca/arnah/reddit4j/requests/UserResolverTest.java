@@ -0,0 +1,36 @@
+package ca.arnah.reddit4j.requests;
+
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class UserResolverTest extends RequestTestSupport{
+	
+	@Test
+	void userResolverCachesMissingAccounts() throws Exception{
+		transport.respond("/api/user_data_by_account_ids", 200, "{\"t2_a\": {\"name\": \"someone\", \"link_karma\": 5}}");
+		UserResolver resolver = new UserResolver.Builder(requestFactory).build();
+		var user = resolver.load("t2_a");
+		var suspended = resolver.load("t2_b");
+		assertEquals("someone", user.get(5, TimeUnit.SECONDS).getName());
+		assertEquals("t2_a", user.get().getFullName());
+		assertNull(suspended.get(5, TimeUnit.SECONDS));
+		assertNull(resolver.load("t2_b").get(5, TimeUnit.SECONDS));
+		assertEquals(1, transport.getRequests().size());
+	}
+	
+	@Test
+	void malformedFullNamesAreRejected(){
+		UserResolver resolver = new UserResolver.Builder(requestFactory).build();
+		for(String fullName : new String[]{"a", "t2_", "t3_abc"}){
+			var ex = assertThrows(IllegalArgumentException.class, ()->resolver.load(fullName));
+			assertTrue(ex.getMessage().contains(fullName));
+		}
+		assertTrue(transport.getRequests().isEmpty());
+	}
+}
@@ -0,0 +1,48 @@
+package ca.arnah.reddit4j.requests.cache;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import ca.arnah.reddit4j.factories.RequestFactorySettings;
+import ca.arnah.reddit4j.objects.response.listings.GetByIdResponse;
+import ca.arnah.reddit4j.requests.RequestTestSupport;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ContentHashCacheTest extends RequestTestSupport{
+	
+	@Test
+	void unchangedBodyIsNotDecodedAgain(){
+		useSettings(new RequestFactorySettings.Builder().contentHashCache(new ContentHashCache()));
+		transport.respond("/by_id/t3_abc", 200, BY_ID);
+		var first = getById().execute();
+		var request = getById();
+		assertSame(first, request.execute());
+		assertTrue(request.isUnchanged());
+		assertEquals(2, transport.getRequests().size());
+		assertEquals(1, requestFactory.getStatistics().getSkippedParses());
+	}
+	
+	@Test
+	void hashedBodyIsWrittenToDisk(@TempDir Path directory) throws IOException{
+		// Trailing whitespace is never read by the decoder, it still has to end up on disk.
+		String body = BY_ID + "\n\n";
+		transport.respond("/by_id/t3_abc", 200, body);
+		try(DiskResponseCache disk = new DiskResponseCache.Builder(directory).build()){
+			useSettings(new RequestFactorySettings.Builder().responseCache(new ResponseCache.Builder().diskCache(disk).build())
+				.contentHashCache(new ContentHashCache()));
+			assertEquals("Hello", getById().execute().getLinks().get(0).getTitle());
+			var key = new ResponseCache.Key("GET", transport.getRequests().get(0).uri(), IDENTITY, GetByIdResponse.class);
+			ByteBuffer stored = disk.get(key).body();
+			byte[] bytes = new byte[stored.remaining()];
+			stored.get(bytes);
+			assertEquals(body, new String(bytes, StandardCharsets.UTF_8));
+		}
+	}
+}
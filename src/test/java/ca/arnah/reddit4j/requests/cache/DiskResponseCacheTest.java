@@ -0,0 +1,184 @@
+package ca.arnah.reddit4j.requests.cache;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.stream.Stream;
+import ca.arnah.reddit4j.factories.RequestFactorySettings;
+import ca.arnah.reddit4j.objects.response.listings.GetByIdResponse;
+import ca.arnah.reddit4j.requests.RequestTestSupport;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DiskResponseCacheTest extends RequestTestSupport{
+	
+	private static final Duration TTL = Duration.ofHours(1);
+	
+	private static ResponseCache.Key key(String id){
+		return new ResponseCache.Key("GET", URI.create(BASE_URL + "/by_id/" + id), IDENTITY, GetByIdResponse.class);
+	}
+	
+	private static void put(DiskResponseCache disk, String id, String body, Duration ttl){
+		disk.put(key(id), body.getBytes(StandardCharsets.UTF_8), ttl);
+	}
+	
+	/**
+	 * @return The cached body, or <code>null</code> if it is not cached.
+	 */
+	private static String get(DiskResponseCache disk, String id){
+		DiskResponseCache.Cached cached = disk.get(key(id));
+		if(cached == null) return null;
+		ByteBuffer body = cached.body();
+		byte[] bytes = new byte[body.remaining()];
+		body.get(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+	
+	private static long countSegments(Path directory) throws IOException{
+		try(Stream<Path> files = Files.list(directory)){
+			return files.count();
+		}
+	}
+	
+	@Test
+	void diskCacheSurvivesRestart(@TempDir Path directory) throws IOException{
+		transport.respond("/by_id/t3_abc", 200, BY_ID);
+		for(int restart = 0; restart < 2; restart++){
+			try(DiskResponseCache disk = new DiskResponseCache.Builder(directory).build()){
+				useSettings(new RequestFactorySettings.Builder().responseCache(new ResponseCache.Builder().diskCache(disk).build()));
+				assertEquals("Hello", getById().execute().getLinks().get(0).getTitle());
+			}
+		}
+		assertEquals(1, transport.getRequests().size());
+	}
+	
+	@Test
+	void tornTailIsTruncated(@TempDir Path directory) throws IOException{
+		Path segment = directory.resolve("segment-0.dat");
+		long intact;
+		try(DiskResponseCache disk = new DiskResponseCache.Builder(directory).build()){
+			put(disk, "t3_a", "first", TTL);
+			intact = disk.getBytes();
+			put(disk, "t3_b", "second", TTL);
+		}
+		// Cut the second record short, as a crash while appending it would.
+		try(FileChannel channel = FileChannel.open(segment, StandardOpenOption.WRITE)){
+			channel.truncate(channel.size() - 3);
+		}
+		try(DiskResponseCache disk = new DiskResponseCache.Builder(directory).build()){
+			assertEquals("first", get(disk, "t3_a"));
+			assertNull(get(disk, "t3_b"));
+			assertEquals(intact, Files.size(segment));
+			put(disk, "t3_c", "third", TTL);
+		}
+		// Appended right after the last intact record.
+		try(DiskResponseCache disk = new DiskResponseCache.Builder(directory).build()){
+			assertEquals("first", get(disk, "t3_a"));
+			assertEquals("third", get(disk, "t3_c"));
+		}
+	}
+	
+	@Test
+	void corruptRecordIsRejected(@TempDir Path directory) throws IOException{
+		Path segment = directory.resolve("segment-0.dat");
+		long intact;
+		try(DiskResponseCache disk = new DiskResponseCache.Builder(directory).build()){
+			put(disk, "t3_a", "first", TTL);
+			intact = disk.getBytes();
+			put(disk, "t3_b", "second", TTL);
+		}
+		// Flip a bit in the body of the second record, its length still adds up but its CRC does not.
+		byte[] bytes = Files.readAllBytes(segment);
+		bytes[bytes.length - 1] ^= 1;
+		Files.write(segment, bytes);
+		try(DiskResponseCache disk = new DiskResponseCache.Builder(directory).build()){
+			assertEquals("first", get(disk, "t3_a"));
+			assertNull(get(disk, "t3_b"));
+			assertEquals(1, disk.getSize());
+			assertEquals(intact, Files.size(segment));
+		}
+	}
+	
+	@Test
+	void hashCollisionIsVerified(@TempDir Path directory) throws IOException{
+		try(DiskResponseCache disk = new DiskResponseCache(new DiskResponseCache.Builder(directory)){
+			@Override
+			long hash(byte[] keyBytes){
+				return 0;
+			}
+		}){
+			put(disk, "t3_a", "first", TTL);
+			put(disk, "t3_b", "second", TTL);
+			// The record of the other key is found, but its key does not match.
+			assertNull(get(disk, "t3_a"));
+			assertEquals("second", get(disk, "t3_b"));
+		}
+	}
+	
+	@Test
+	void expiredRecordsAreDropped(@TempDir Path directory) throws IOException, InterruptedException{
+		try(DiskResponseCache disk = new DiskResponseCache.Builder(directory).build()){
+			put(disk, "t3_a", "first", Duration.ofMillis(1));
+			put(disk, "t3_b", "second", TTL);
+			Thread.sleep(20);
+			assertNull(get(disk, "t3_a"));
+			assertEquals("second", get(disk, "t3_b"));
+			put(disk, "t3_c", "third", Duration.ofMillis(1));
+			Thread.sleep(20);
+		}
+		// Expired records are left out of the index when the segments are read back.
+		try(DiskResponseCache disk = new DiskResponseCache.Builder(directory).build()){
+			assertEquals(1, disk.getSize());
+			assertNull(get(disk, "t3_c"));
+			assertEquals("second", get(disk, "t3_b"));
+		}
+	}
+	
+	@Test
+	void oldestSegmentsAreEvictedPastMaxBytes(@TempDir Path directory) throws IOException{
+		String body = "x".repeat(200);
+		try(DiskResponseCache disk = new DiskResponseCache.Builder(directory).segmentBytes(1024).maxBytes(4096).build()){
+			for(int i = 0; i < 40; i++){
+				put(disk, "t3_" + i, body, TTL);
+			}
+			assertTrue(disk.getBytes() <= 4096, disk.getBytes() + " bytes");
+			assertTrue(countSegments(directory) <= 4096 / 1024 + 1);
+			// Every record was live, so whole segments were dropped oldest first.
+			assertNull(get(disk, "t3_0"));
+			assertEquals(body, get(disk, "t3_39"));
+			assertTrue(disk.getSize() < 40);
+		}
+	}
+	
+	@Test
+	void liveRecordsAreCompactedForward(@TempDir Path directory) throws IOException{
+		String body = "x".repeat(200);
+		try(DiskResponseCache disk = new DiskResponseCache.Builder(directory).segmentBytes(1024).maxBytes(4096).build()){
+			put(disk, "t3_live", "kept", TTL);
+			// Overwrite one key until the segments exceed maxBytes, leaving the older segments mostly dead.
+			for(int i = 0; i < 40; i++){
+				put(disk, "t3_churn", body + i, TTL);
+			}
+			assertTrue(disk.getBytes() <= 4096, disk.getBytes() + " bytes");
+			assertFalse(Files.exists(directory.resolve("segment-0.dat")));
+			assertEquals("kept", get(disk, "t3_live"));
+			assertEquals(2, disk.getSize());
+		}
+		try(DiskResponseCache disk = new DiskResponseCache.Builder(directory).segmentBytes(1024).maxBytes(4096).build()){
+			assertEquals("kept", get(disk, "t3_live"));
+			assertEquals(body + 39, get(disk, "t3_churn"));
+		}
+	}
+}
@@ -0,0 +1,66 @@
+package ca.arnah.reddit4j.requests.cache;
+
+import java.time.Duration;
+import ca.arnah.reddit4j.factories.RedditRequestFactory;
+import ca.arnah.reddit4j.factories.RequestFactorySettings;
+import ca.arnah.reddit4j.requests.RedditRequest;
+import ca.arnah.reddit4j.requests.RequestTestSupport;
+import ca.arnah.reddit4j.requests.transport.InMemoryTransport;
+import org.junit.jupiter.api.Test;
+
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class ResponseCacheTest extends RequestTestSupport{
+	
+	@Test
+	void cachedResponseSkipsTransport(){
+		ResponseCache cache = new ResponseCache.Builder().build();
+		useSettings(new RequestFactorySettings.Builder().responseCache(cache));
+		transport.respond("/by_id/t3_abc", 200, BY_ID);
+		var first = getById().execute();
+		var second = getById().execute();
+		assertSame(first, second);
+		assertEquals(1, transport.getRequests().size());
+		assertEquals(1, cache.getHits());
+		assertEquals(1, cache.getMisses());
+	}
+	
+	@Test
+	void cacheRequiresIdentity(){
+		var settings = new RequestFactorySettings.Builder().responseCache(new ResponseCache.Builder().build()).build();
+		assertThrows(IllegalArgumentException.class, ()->new RedditRequestFactory(BASE_URL, request->request, settings));
+	}
+	
+	@Test
+	void sharedCacheKeepsIdentitiesApart(){
+		ResponseCache cache = new ResponseCache.Builder().build();
+		transport.respond("/by_id/t3_abc", 200, BY_ID);
+		useSettings("client/first", new RequestFactorySettings.Builder().responseCache(cache));
+		var first = getById().execute();
+		useSettings("client/second", new RequestFactorySettings.Builder().responseCache(cache));
+		assertNotSame(first, getById().execute());
+		assertEquals(2, transport.getRequests().size());
+	}
+	
+	@Test
+	void notModifiedReusesCachedObject(){
+		// Expires right away, so the second request has to revalidate.
+		ResponseCache cache = new ResponseCache.Builder().defaultTtl(Duration.ofNanos(1)).build();
+		useSettings(new RequestFactorySettings.Builder().responseCache(cache));
+		transport.respond(request->true, request->{
+			if(request.headers().firstValue(RedditRequest.IF_NONE_MATCH).isPresent()){
+				return new InMemoryTransport.Response(RedditRequest.NOT_MODIFIED, "");
+			}
+			return new InMemoryTransport.Response(200, BY_ID).header(RedditRequest.ETAG, "\"v1\"");
+		});
+		var first = getById().execute();
+		var second = getById().execute();
+		assertSame(first, second);
+		assertEquals("\"v1\"", transport.getRequests().get(1).headers().firstValue(RedditRequest.IF_NONE_MATCH).orElseThrow());
+		assertEquals(1, cache.getRevalidations());
+	}
+}
@@ -0,0 +1,33 @@
+package ca.arnah.reddit4j.requests.paginators;
+
+import java.time.Instant;
+import ca.arnah.reddit4j.objects.reddit.SubredditSort;
+import ca.arnah.reddit4j.requests.RequestTestSupport;
+import ca.arnah.reddit4j.requests.transport.InMemoryTransport;
+import org.junit.jupiter.api.Test;
+
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LinkQueryTest extends RequestTestSupport{
+	
+	@Test
+	void queryStopsPagingPastCutoff(){
+		transport.respond(request->true, request->{
+			String query = request.uri().getQuery();
+			int index = query == null || !query.contains("after=") ? 1 : Integer.parseInt(query.replaceAll(".*after=t3_(\\d+).*", "$1"));
+			return new InMemoryTransport.Response(200, """
+				{"kind": "Listing", "data": {"after": "t3_%d", "before": null, "children": [
+					{"kind": "t3", "data": {"id": "%d", "name": "t3_%d", "created_utc": %d, "score": %d}}
+				]}}""".formatted(index + 1, index, index, 1100 - index * 100, index % 2 == 0 ? 1 : 10));
+		});
+		var links = client().all().query().sorting(SubredditSort.New).newerThan(Instant.ofEpochSecond(750)).minScore(5).list();
+		assertEquals(2, links.size());
+		assertEquals(1000, links.get(0).getCreatedUtc());
+		assertEquals(800, links.get(1).getCreatedUtc());
+		// The fourth page is older than the cutoff, nothing after it is requested.
+		assertEquals(4, transport.getRequests().size());
+		assertTrue(transport.getRequests().get(0).uri().getPath().endsWith("/new"));
+	}
+}
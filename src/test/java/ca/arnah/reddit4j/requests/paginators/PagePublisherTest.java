@@ -0,0 +1,57 @@
+package ca.arnah.reddit4j.requests.paginators;
+
+import java.util.concurrent.Flow;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import ca.arnah.reddit4j.objects.reddit.Link;
+import ca.arnah.reddit4j.requests.RequestTestSupport;
+import org.junit.jupiter.api.Test;
+
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PagePublisherTest extends RequestTestSupport{
+	
+	@Test
+	void publisherFetchesOnDemand() throws InterruptedException{
+		respondWithThreePages();
+		var received = new LinkedBlockingQueue<Object>();
+		var subscription = new AtomicReference<Flow.Subscription>();
+		client().all().build().items().subscribe(new Flow.Subscriber<>(){
+			
+			@Override
+			public void onSubscribe(Flow.Subscription s){
+				subscription.set(s);
+				s.request(1);
+			}
+			
+			@Override
+			public void onNext(Link item){
+				received.add(item);
+			}
+			
+			@Override
+			public void onError(Throwable throwable){
+				received.add(throwable);
+			}
+			
+			@Override
+			public void onComplete(){
+				received.add("complete");
+			}
+		});
+		assertInstanceOf(Link.class, received.poll(5, TimeUnit.SECONDS));
+		// Nothing more was demanded, so only the first page was requested. Only request() can start another page, so this holds without
+		// waiting.
+		assertEquals(1, transport.getRequests().size());
+		assertTrue(received.isEmpty());
+		subscription.get().request(Long.MAX_VALUE);
+		assertInstanceOf(Link.class, received.poll(5, TimeUnit.SECONDS));
+		assertInstanceOf(Link.class, received.poll(5, TimeUnit.SECONDS));
+		assertEquals("complete", received.poll(5, TimeUnit.SECONDS));
+		assertEquals(3, transport.getRequests().size());
+	}
+}
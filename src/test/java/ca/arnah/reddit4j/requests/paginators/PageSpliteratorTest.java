@@ -0,0 +1,20 @@
+package ca.arnah.reddit4j.requests.paginators;
+
+import ca.arnah.reddit4j.objects.reddit.Link;
+import ca.arnah.reddit4j.requests.RequestTestSupport;
+import org.junit.jupiter.api.Test;
+
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class PageSpliteratorTest extends RequestTestSupport{
+	
+	@Test
+	void parallelStreamCoversEveryPage(){
+		respondWithThreePages();
+		try(var stream = client().all().build().parallelStream()){
+			assertEquals(3, stream.filter(Link.class::isInstance).count());
+		}
+		assertEquals(3, transport.getRequests().size());
+	}
+}
@@ -0,0 +1,88 @@
+package ca.arnah.reddit4j.requests.paginators;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import ca.arnah.reddit4j.requests.RequestTestSupport;
+import ca.arnah.reddit4j.requests.transport.InMemoryTransport;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PaginatorTest extends RequestTestSupport{
+	
+	@Test
+	void paginatorPrefetchesAhead() throws InterruptedException{
+		CountDownLatch requested = new CountDownLatch(3);
+		transport.respond(request->true, request->{
+			requested.countDown();
+			String query = request.uri().getQuery();
+			String after = query == null || !query.contains("after=") ? "t3_2" : query.contains("after=t3_2") ? "t3_3" : null;
+			return new InMemoryTransport.Response(200, page(after));
+		});
+		try(var paginator = client().all().prefetch(2).build()){
+			var iterator = paginator.iterator();
+			assertEquals("t3_2", iterator.next().getAfter());
+			// The first page and both prefetched pages are requested without consuming them.
+			assertTrue(requested.await(5, TimeUnit.SECONDS));
+			assertEquals("t3_3", iterator.next().getAfter());
+			assertTrue(iterator.hasNext());
+			assertNull(iterator.next().getAfter());
+			assertFalse(iterator.hasNext());
+		}
+		// Never more than there are.
+		assertEquals(3, transport.getRequests().size());
+	}
+	
+	@Test
+	void paginatorResumesFromCheckpoint(@TempDir Path directory) throws IOException{
+		respondWithThreePages();
+		var store = new FileCheckpointStore(directory);
+		var paginator = client().all().checkpoint(store, "all", 1).build();
+		paginator.next();
+		// Nothing is saved while the first page is still being processed.
+		assertNull(store.load("all"));
+		paginator.next();
+		// Asking for the second page commits the first one.
+		PaginatorState state = store.load("all");
+		assertEquals("t3_2", state.getAfter());
+		assertEquals(1, state.getPageNumber());
+		assertEquals(1, state.getItemsSeen());
+		
+		// Crashed while processing the second page, it is handed out again.
+		var resumed = client().all().checkpoint(store, "all", 1).resume(state).build();
+		var iterator = resumed.iterator();
+		assertTrue(iterator.hasNext());
+		assertEquals("t3_3", iterator.next().getAfter());
+		assertTrue(transport.getRequests().get(2).uri().getQuery().contains("after=t3_2"));
+		assertEquals(1, store.load("all").getPageNumber());
+		iterator.next();
+		assertEquals(2, store.load("all").getPageNumber());
+		assertFalse(iterator.hasNext());
+		assertEquals(3, store.load("all").getPageNumber());
+		assertFalse(store.load("all").hasNext());
+		assertThrows(IllegalArgumentException.class, ()->client().popular().resume(state).build().next());
+	}
+	
+	@Test
+	void takeSizesTheLastPage(){
+		transport.respond(request->true, request->new InMemoryTransport.Response(200, page("t3_2")));
+		var paginator = client().all().take(150).build();
+		assertEquals(2, paginator.accumulate(2).size());
+		assertTrue(transport.getRequests().get(0).uri().getQuery().contains("limit=100"));
+		assertTrue(transport.getRequests().get(1).uri().getQuery().contains("limit=100"));
+		
+		paginator = client().all().take(2).build();
+		assertEquals(2, paginator.accumulateFlatten(5).size());
+		assertTrue(transport.getRequests().get(2).uri().getQuery().contains("limit=2"));
+		assertTrue(transport.getRequests().get(3).uri().getQuery().contains("limit=1"));
+		assertEquals(4, transport.getRequests().size());
+	}
+}
@@ -0,0 +1,112 @@
+package ca.arnah.reddit4j.requests.paginators;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import ca.arnah.reddit4j.factories.RequestFactorySettings;
+import ca.arnah.reddit4j.objects.reddit.Link;
+import ca.arnah.reddit4j.requests.RequestTestSupport;
+import ca.arnah.reddit4j.requests.RetryPolicy;
+import ca.arnah.reddit4j.requests.transport.InMemoryTransport;
+import org.junit.jupiter.api.Test;
+
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SubmissionStreamTest extends RequestTestSupport{
+	
+	/**
+	 * Answers the new listing with pages of two links, counting down from the given newest one.
+	 */
+	private void respondWithNewest(AtomicInteger newest){
+		transport.respond(request->true, request->{
+			String query = request.uri().getQuery();
+			int first = query == null || !query.contains("after=") ? newest.get() : Integer.parseInt(query.replaceAll(".*after=t3_(\\d+).*", "$1")) - 1;
+			return new InMemoryTransport.Response(200, """
+				{"kind": "Listing", "data": {"after": "t3_%d", "before": null, "children": [
+					{"kind": "t3", "data": {"id": "%d", "name": "t3_%d"}},
+					{"kind": "t3", "data": {"id": "%d", "name": "t3_%d"}}
+				]}}""".formatted(first - 1, first, first, first - 1, first - 1));
+		});
+	}
+	
+	@Test
+	void submissionStreamPagesUntilSeen(){
+		var newest = new AtomicInteger(3);
+		respondWithNewest(newest);
+		try(var stream = client().subreddit("test").submissions().build()){
+			// The links posted before the first poll are only marked as seen.
+			assertTrue(stream.poll().isEmpty());
+			newest.set(6);
+			assertEquals(List.of("t3_4", "t3_5", "t3_6"), stream.poll().stream().map(Link::getFullName).toList());
+			assertEquals(3, transport.getRequests().size());
+			assertTrue(stream.poll().isEmpty());
+			assertEquals(4, transport.getRequests().size());
+			assertTrue(transport.getRequests().get(0).uri().getPath().endsWith("/r/test/new"));
+		}
+	}
+	
+	@Test
+	void intervalFollowsPostRate() throws InterruptedException{
+		var newest = new AtomicInteger(3);
+		respondWithNewest(newest);
+		try(var stream = client().subreddit("test").submissions().interval(Duration.ofMillis(1), Duration.ofMinutes(5)).linksPerPoll(2).smoothing(0.5).build()){
+			stream.poll();
+			assertEquals(-1, stream.getPostRate());
+			assertEquals(Duration.ofMillis(1), stream.getInterval());
+			newest.addAndGet(4);
+			Thread.sleep(100);
+			assertEquals(4, stream.poll().size());
+			// 4 links in a little over 100ms.
+			double busy = stream.getPostRate();
+			assertTrue(busy > 0 && busy <= 40, "Post rate " + busy);
+			assertEquals(Duration.ofMillis((long) (2 / busy * 1000)), stream.getInterval());
+			// Nothing new, the average halves so the interval doubles.
+			assertTrue(stream.poll().isEmpty());
+			assertEquals(busy / 2, stream.getPostRate());
+			assertEquals(Duration.ofMillis((long) (2 / (busy / 2) * 1000)), stream.getInterval());
+		}
+	}
+	
+	@Test
+	void quietSubredditIsPolledAtMaxInterval(){
+		var newest = new AtomicInteger(3);
+		respondWithNewest(newest);
+		try(var stream = client().subreddit("test").submissions().interval(Duration.ofMillis(1), Duration.ofMinutes(5)).smoothing(1).build()){
+			stream.poll();
+			assertTrue(stream.poll().isEmpty());
+			assertEquals(0, stream.getPostRate());
+			assertEquals(Duration.ofMinutes(5), stream.getInterval());
+		}
+	}
+	
+	@Test
+	void failedPollKeepsPostRate() throws InterruptedException{
+		useSettings(new RequestFactorySettings.Builder().retryPolicy(RetryPolicy.NONE));
+		var failing = new AtomicBoolean(true);
+		transport.respond(request->failing.get(), request->new InMemoryTransport.Response(500, "{\"message\": \"Internal Server Error\", \"error\": 500}"));
+		var newest = new AtomicInteger(3);
+		respondWithNewest(newest);
+		try(var stream = client().subreddit("test").submissions().interval(Duration.ofMillis(1), Duration.ofMinutes(5)).linksPerPoll(2).build()){
+			// A failed first poll leaves the links posted before the stream started to the next poll.
+			assertTrue(stream.poll().isEmpty());
+			failing.set(false);
+			assertTrue(stream.poll().isEmpty());
+			assertEquals(-1, stream.getPostRate());
+			newest.addAndGet(4);
+			Thread.sleep(50);
+			assertEquals(4, stream.poll().size());
+			double rate = stream.getPostRate();
+			Duration interval = stream.getInterval();
+			failing.set(true);
+			newest.addAndGet(4);
+			assertTrue(stream.poll().isEmpty());
+			assertEquals(rate, stream.getPostRate());
+			assertEquals(interval, stream.getInterval());
+			failing.set(false);
+			assertEquals(4, stream.poll().size());
+		}
+	}
+}